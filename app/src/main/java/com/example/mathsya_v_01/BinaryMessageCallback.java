@@ -0,0 +1,27 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives inbound messages as bytes, before any String is built.
+ *
+ * Shared by {@link TcpClient} (every frame), {@link SocketManager} (WebSocket
+ * binary messages, as a view of OkHttp's ByteString) and
+ * {@link UdpControlChannel} (echo datagrams). The String callbacks of those
+ * classes are optional adapters behind this one: only messages that are
+ * not consumed here get decoded for them (text as is, WebSocket binary
+ * messages as Base64).
+ */
+public interface BinaryMessageCallback {
+
+    /**
+     * Called on the network thread. payload is a read-only view that is only
+     * valid during the call; copy what you need to keep.
+     *
+     * @param type {@link FrameReader} frame type, {@link FrameReader#TYPE_BINARY}
+     *             when the transport has no type of its own
+     * @return true if the message was handled; false lets it fall through to
+     * the String callback
+     */
+    boolean onBinaryMessage(int type, ByteBuffer payload);
+}
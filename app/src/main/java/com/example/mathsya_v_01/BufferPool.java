@@ -0,0 +1,40 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Small process-wide pool of direct buffers for socket I/O.
+ *
+ * Direct buffers are expensive to allocate and are only reclaimed by the GC,
+ * so connections borrow one here and return it when they end instead of
+ * allocating a fresh buffer on every reconnect.
+ */
+public final class BufferPool {
+
+    private static final int MAX_POOLED = 8;
+    private static final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+
+    private BufferPool() {}
+
+    /** Borrow a cleared direct buffer with at least the requested capacity. */
+    public static ByteBuffer acquire(int capacity) {
+        synchronized (pool) {
+            for (ByteBuffer b : pool) {
+                if (b.capacity() >= capacity) {
+                    pool.remove(b);
+                    b.clear();
+                    return b;
+                }
+            }
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        synchronized (pool) {
+            if (pool.size() < MAX_POOLED) pool.push(buffer);
+        }
+    }
+}
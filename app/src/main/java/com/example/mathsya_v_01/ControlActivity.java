@@ -3,7 +3,6 @@ package com.example.mathsya_v_01;
 import android.annotation.SuppressLint;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
@@ -22,11 +21,12 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.google.android.material.slider.Slider;
 
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.IOException;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import io.socket.client.Socket;
 
@@ -37,12 +37,20 @@ public class ControlActivity extends AppCompatActivity {
     private static final String TARGET_IP = "10.42.0.1";
     private static final String SERVER_URL = "http://" + TARGET_IP + ":5000";
     private ControlState controlState;
+    private static final int CONTROL_PORT = 5000;
     private static final int TEST_PORT = 80; // Port for the TCP ping fallback
+    private static final int PROBE_TIMEOUT_MS = 1500;
+    private static final String PREFS_NAME = "connection";
+    private ReachabilityProbe reachabilityProbe;
     private Socket socket;
-    private Handler handler = new Handler();
     private boolean systemOnline = false;
     private boolean systemArmed = false;
-    private Runnable sendDataRunnable;
+    private ControlPublisher controlPublisher;
+    private final TelemetrySnapshot telemetryState = new TelemetrySnapshot();
+    private final TelemetryDeltaCodec.Decoder telemetryDeltaDecoder = new TelemetryDeltaCodec.Decoder();
+    private final TelemetryMailbox telemetryMailbox = new TelemetryMailbox();
+    private final Runnable renderTelemetry = this::renderTelemetry;
+    private static final int CONTROL_RATE_HZ = 50;
     private TextView statusLed, statusLabel, harmStatus, harmLabel, logboard, readmeter, throttlemeter;
     private ScrollView scrolllog;
     private Button reConnectBtn, armBtn;
@@ -55,14 +63,8 @@ public class ControlActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         controlState = new ControlState();
-        sendDataRunnable = new Runnable() {
-            @Override
-            public void run() {
-                sendDataToServer();
-                handler.postDelayed(this, 2000); // repeat every 3 sec
-            }
-        };
-        handler.post(sendDataRunnable);
+        controlPublisher = new ControlPublisher(controlState, CONTROL_RATE_HZ, state -> sendDataToServer());
+        controlPublisher.start();
 
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
@@ -107,12 +109,17 @@ public class ControlActivity extends AppCompatActivity {
     private void setupSocketEventListeners() {
         if (socket == null) return;
 
-        socket.on(Socket.EVENT_CONNECT, args -> runOnUiThread(() -> {
-            systemOnline = true;
-            updateStatus(true);
-            logSetter("Socket Connected to Vehicle.");
-            Toast.makeText(ControlActivity.this, "Connected", Toast.LENGTH_SHORT).show();
-        }));
+        socket.on(Socket.EVENT_CONNECT, args -> {
+            // a new connection starts from a keyframe
+            telemetryDeltaDecoder.reset();
+            socket.emit("hello", helloMessage());
+            runOnUiThread(() -> {
+                systemOnline = true;
+                updateStatus(true);
+                logSetter("Socket Connected to Vehicle.");
+                Toast.makeText(ControlActivity.this, "Connected", Toast.LENGTH_SHORT).show();
+            });
+        });
 
         socket.on(Socket.EVENT_DISCONNECT, args -> runOnUiThread(() -> {
             systemOnline = false;
@@ -133,16 +140,43 @@ public class ControlActivity extends AppCompatActivity {
         }));
 
 
-        socket.on("telemetry", args -> runOnUiThread(() -> {
+        // Read the fields on the socket.io event thread; the UI only gets the newest snapshot
+        socket.on("telemetry", args -> {
+            if (args[0] instanceof byte[]) {
+                // compact tlm1 frame, sent once the vehicle has seen our hello
+                if (telemetryDeltaDecoder.decode(ByteBuffer.wrap((byte[]) args[0]), telemetryState)
+                        && telemetryMailbox.publish(telemetryState)) {
+                    runOnUiThread(renderTelemetry);
+                }
+                return;
+            }
             JSONObject data = (JSONObject) args[0];
-            int battery = data.optInt("battery", 0);
-            // Update armed state based on server feedback for reliability
-            systemArmed = data.optBoolean("armed", false);
-            float depth = (float) data.optDouble("depth", 0.0);
+            telemetryState.battery = data.optInt("battery", 0);
+            telemetryState.armed = data.optBoolean("armed", false);
+            telemetryState.depth = data.optDouble("depth", 0.0);
+            telemetryState.updated = TelemetrySnapshot.F_BATTERY
+                    | TelemetrySnapshot.F_ARMED | TelemetrySnapshot.F_DEPTH;
+            telemetryState.fields |= telemetryState.updated;
+            if (telemetryMailbox.publish(telemetryState)) runOnUiThread(renderTelemetry);
+        });
+    }
 
-            statusLabel.setText("Battery: " + battery + "%, Depth: " + depth);
-            updateArmStatus(systemArmed); // Reflects the actual state from the vehicle
-        }));
+    // Offer compact telemetry; a vehicle that doesn't know it keeps sending JSON
+    private static JSONObject helloMessage() {
+        JSONObject hello = new JSONObject();
+        try {
+            hello.put("telemetry", new JSONArray(Arrays.asList(TelemetryDeltaCodec.WIRE_NAME, "json")));
+        } catch (JSONException e) {
+            Log.e(TAG, "Error building hello", e);
+        }
+        return hello;
+    }
+
+    private void renderTelemetry() {
+        TelemetrySnapshot t = telemetryMailbox.latest();
+        statusLabel.setText("Battery: " + t.battery + "%, Depth: " + (float) t.depth);
+        // Update armed state based on server feedback for reliability
+        updateArmStatus(t.armed); // Reflects the actual state from the vehicle
     }
 
     @SuppressLint("ClickableViewAccessibility")
@@ -264,46 +298,33 @@ public class ControlActivity extends AppCompatActivity {
         }
     }
 
+    // A hello against every candidate, and a ping of the host, at once; the
+    // last good endpoint is checked alone first
     private void testPingAndConnect() {
-        new Thread(() -> {
-            String pingMessage;
-            boolean isReachable = false;
-            logSetter("Trying ICMP Ping...");
-            try {
-                InetAddress inet = InetAddress.getByName(TARGET_IP);
-                if (inet.isReachable(2000)) { // 2-second timeout
-                    isReachable = true;
-                    pingMessage = "ICMP Ping SUCCESS to " + TARGET_IP;
-                } else {
-                    logSetter("ICMP failed. Trying TCP port connection...");
-                    try (java.net.Socket tcpSocket = new java.net.Socket()) {
-                        tcpSocket.connect(new InetSocketAddress(TARGET_IP, TEST_PORT), 2000);
-                        isReachable = true;
-                        pingMessage = "TCP Connection SUCCESS to " + TARGET_IP + ":" + TEST_PORT;
-                    } catch (IOException e) {
-                        pingMessage = "Ping FAILED: Vehicle is not reachable on the network.";
-                        Log.e(TAG, "TCP Fallback failed", e);
-                    }
-                }
-            } catch (IOException e) {
-                pingMessage = "Ping FAILED: An error occurred during ping.";
-                Log.e(TAG, "ICMP Ping failed", e);
+        if (reachabilityProbe == null) {
+            reachabilityProbe = new ReachabilityProbe(
+                    getSharedPreferences(PREFS_NAME, MODE_PRIVATE),
+                    Arrays.asList(
+                            new ReachabilityProbe.Endpoint(TARGET_IP, CONTROL_PORT),
+                            new ReachabilityProbe.Endpoint(TARGET_IP, TEST_PORT)),
+                    PROBE_TIMEOUT_MS);
+        }
+        logSetter("Probing vehicle endpoints...");
+        reachabilityProbe.probe(result -> {
+            String message = result != null
+                    ? "Reachable via " + result
+                    : "Ping FAILED: Vehicle is not reachable on the network.";
+            logSetter(message);
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            if (result != null && !result.hostOnly()) {
+                logSetter("Vehicle is reachable. Initializing socket connection...");
+                setupSocket(); // Now that we know it's reachable, connect the main socket.
+            } else if (result != null) {
+                logSetter("Host answers ping, but no vehicle port is open. Check the AUV software.");
+            } else {
+                logSetter("Vehicle unreachable. Check Wi-Fi and AUV power.");
             }
-
-            final String finalMessage = pingMessage;
-            final boolean finalIsReachable = isReachable;
-
-            runOnUiThread(() -> {
-                logSetter(finalMessage);
-                Toast.makeText(this, finalMessage, Toast.LENGTH_LONG).show();
-                if (finalIsReachable) {
-                    logSetter("Vehicle is reachable. Initializing socket connection...");
-                    setupSocket(); // Now that we know it's reachable, connect the main socket.
-                } else {
-                    logSetter("Vehicle unreachable. Check Wi-Fi and AUV power.");
-                }
-            });
-        }).start();
+        });
     }
 
     private void updateStatus(boolean online) {
@@ -366,6 +387,8 @@ public class ControlActivity extends AppCompatActivity {
     private void sendDataToServer() {
         if (socket != null && socket.connected()) {
             try {
+                // a fresh seq per frame, so the vehicle's echoes can be matched to it
+                controlState.nextSequence();
                 JSONObject json = controlState.toJSON();
                 Log.d("SOCKET_EMIT", "Sending JSON: " + json.toString());
                 socket.emit("client_data", json);
@@ -380,10 +403,11 @@ public class ControlActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (reachabilityProbe != null) reachabilityProbe.cancel();
         if (socket != null) {
             logSetter("Closing socket connection.");
             socket.off(); // Remove all listeners
         }
-        handler.removeCallbacks(sendDataRunnable);
+        controlPublisher.stop();
     }
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size binary encoding of a {@link ControlState} frame.
+ *
+ * Layout (big-endian, {@link #FRAME_SIZE} bytes):
+ * <pre>
+ *  off  size  field
+ *   0    1    magic (0xA5, never a valid first byte of a JSON line)
+ *   1    1    version
+ *   2    1    flags (bit 0 = armed)
+ *   3    1    reserved, always 0
+ *   4    4    sequence number
+ *   8    8    timestamp, ms since epoch
+ *  16    4    x        (float, -1..1)
+ *  20    4    y        (float, -1..1)
+ *  24    4    throttle (float, 0..100)
+ * </pre>
+ *
+ * The encoder writes into one reused buffer, so a frame costs no allocation.
+ * JSON ({@link ControlState#toJSON()}) stays available as the fallback when the
+ * vehicle has not announced support for this format.
+ */
+public final class ControlFrameCodec {
+
+    /** Wire formats a connection can negotiate. */
+    public enum Format {
+        JSON("json"),
+        BINARY("bin1");
+
+        private final String wireName;
+
+        Format(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public String wireName() {
+            return wireName;
+        }
+
+        /** Map a name announced by the vehicle to a format; unknown names fall back to JSON. */
+        public static Format fromWireName(String name) {
+            if (BINARY.wireName.equals(name)) return BINARY;
+            return JSON;
+        }
+    }
+
+    public static final byte MAGIC = (byte) 0xA5;
+    public static final byte VERSION = 1;
+    public static final int FRAME_SIZE = 28;
+
+    private static final int FLAG_ARMED = 0x01;
+
+    /** Decoded view of one control frame; reuse the same instance across calls. */
+    public static final class Frame {
+        public int sequence;
+        public long timestamp;
+        public float x;
+        public float y;
+        public float throttle;
+        public boolean armed;
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_SIZE);
+
+    /**
+     * Encode the state into this codec's reused buffer.
+     * The returned buffer is flipped and valid until the next call.
+     */
+    public ByteBuffer encode(ControlState state, long timestampMs) {
+        buffer.clear();
+        encode(state, timestampMs, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encode the state at dst's current position and advance it by {@link #FRAME_SIZE}.
+     */
+    public static void encode(ControlState state, long timestampMs, ByteBuffer dst) {
+        dst.put(MAGIC);
+        dst.put(VERSION);
+        dst.put((byte) (state.isArmed() ? FLAG_ARMED : 0));
+        dst.put((byte) 0);
+        dst.putInt(state.getSequence());
+        dst.putLong(timestampMs);
+        dst.putFloat((float) state.getX());
+        dst.putFloat((float) state.getY());
+        dst.putFloat((float) state.getThrottle());
+    }
+
+    /**
+     * Decode one frame from src's current position into out.
+     *
+     * @return false (with src untouched) if fewer than {@link #FRAME_SIZE} bytes
+     * remain or the header does not match; true once a frame was consumed.
+     */
+    public static boolean decode(ByteBuffer src, Frame out) {
+        if (src.remaining() < FRAME_SIZE) return false;
+        int p = src.position();
+        if (src.get(p) != MAGIC || src.get(p + 1) != VERSION) return false;
+
+        int flags = src.get(p + 2);
+        out.armed = (flags & FLAG_ARMED) != 0;
+        out.sequence = src.getInt(p + 4);
+        out.timestamp = src.getLong(p + 8);
+        out.x = src.getFloat(p + 16);
+        out.y = src.getFloat(p + 20);
+        out.throttle = src.getFloat(p + 24);
+        src.position(p + FRAME_SIZE);
+        return true;
+    }
+
+    /**
+     * Receiver-side ordering rule for unreliable transports: a frame is applied
+     * only if its sequence is newer than the last one applied. Uses serial
+     * number arithmetic, so it keeps working when the counter wraps.
+     */
+    public static boolean isNewer(int sequence, int lastApplied) {
+        return sequence - lastApplied > 0;
+    }
+
+    /** True if the buffer starts with a binary control frame header. */
+    public static boolean isBinaryFrame(ByteBuffer src) {
+        return src.remaining() >= 2
+                && src.get(src.position()) == MAGIC
+                && src.get(src.position() + 1) == VERSION;
+    }
+}
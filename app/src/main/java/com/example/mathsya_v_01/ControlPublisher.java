@@ -0,0 +1,115 @@
+package com.example.mathsya_v_01;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Puts the latest {@link ControlState} on the wire at a fixed rate.
+ *
+ * Input handlers only write into the ControlState; this class samples it on
+ * every tick and calls the {@link Sink} when something moved by more than the
+ * configured epsilon, or when the keepalive interval ran out. Intermediate
+ * touch events between two ticks are simply overwritten.
+ *
+ * Runs on the main looper, like the input handlers that feed it.
+ */
+public class ControlPublisher {
+
+    public interface Sink {
+        void publish(ControlState state);
+    }
+
+    private final ControlState state;
+    private final Sink sink;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private long periodMs;
+    private long keepaliveMs = 1000;
+    private double positionEpsilon = 0.01;  // joystick axes are -1..1
+    private double throttleEpsilon = 0.5;   // throttle is 0..100
+
+    // Last values actually sent
+    private double sentX, sentY, sentThrottle;
+    private boolean sentArmed;
+    private boolean sentOnce = false;
+    private long lastSendMs;
+
+    private long nextTickMs;
+    private boolean running = false;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) return;
+            long now = SystemClock.uptimeMillis();
+            if (hasChanged() || now - lastSendMs >= keepaliveMs) {
+                send(now);
+            }
+            // Fixed rate: schedule from the ideal tick time, skip ticks we missed
+            nextTickMs += periodMs;
+            if (nextTickMs <= now) nextTickMs = now + periodMs;
+            handler.postAtTime(this, nextTickMs);
+        }
+    };
+
+    public ControlPublisher(ControlState state, int rateHz, Sink sink) {
+        this.state = state;
+        this.sink = sink;
+        setRateHz(rateHz);
+    }
+
+    public void setRateHz(int rateHz) {
+        this.periodMs = Math.max(1, 1000 / Math.max(1, rateHz));
+    }
+
+    public void setKeepaliveMs(long keepaliveMs) {
+        this.keepaliveMs = keepaliveMs;
+    }
+
+    public void setEpsilon(double positionEpsilon, double throttleEpsilon) {
+        this.positionEpsilon = positionEpsilon;
+        this.throttleEpsilon = throttleEpsilon;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        nextTickMs = SystemClock.uptimeMillis() + periodMs;
+        handler.postAtTime(tick, nextTickMs);
+    }
+
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(tick);
+    }
+
+    /**
+     * Send the current state right away (e.g. arm/disarm) instead of waiting
+     * for the next tick.
+     */
+    public void publishNow() {
+        send(SystemClock.uptimeMillis());
+    }
+
+    private boolean hasChanged() {
+        if (!sentOnce) return true;
+        return state.isArmed() != sentArmed
+                || Math.abs(state.getX() - sentX) > positionEpsilon
+                || Math.abs(state.getY() - sentY) > positionEpsilon
+                || Math.abs(state.getThrottle() - sentThrottle) > throttleEpsilon
+                // always let the stick settle exactly on neutral
+                || (state.getX() == 0 && sentX != 0)
+                || (state.getY() == 0 && sentY != 0);
+    }
+
+    private void send(long now) {
+        sentX = state.getX();
+        sentY = state.getY();
+        sentThrottle = state.getThrottle();
+        sentArmed = state.isArmed();
+        sentOnce = true;
+        lastSendMs = now;
+        sink.publish(state);
+    }
+}
@@ -11,6 +11,7 @@ public class ControlState {
     private double y = 0.0;
     private double throttle = 0.0;
     private boolean armed = false;
+    private int sequence = 0;
 
     public ControlState() {}
 
@@ -27,8 +28,44 @@ public class ControlState {
         this.armed = armed;
     }
 
+    /** Failsafe: stick centred, throttle zero, disarmed. */
+    public void setNeutral() {
+        this.x = 0.0;
+        this.y = 0.0;
+        this.throttle = 0.0;
+        this.armed = false;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getThrottle() {
+        return throttle;
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Advance the frame sequence number. Call once per frame put on the wire.
+     */
+    public int nextSequence() {
+        return ++sequence;
+    }
+
     /**
      * Build JSON to send to server. Keep keys in a format server expects.
+     * This is the fallback wire format; see {@link ControlFrameCodec} for the binary one.
      */
     public JSONObject toJSON() {
         JSONObject json = new JSONObject();
@@ -38,6 +75,7 @@ public class ControlState {
             json.put("throttle", throttle);
             json.put("armed", armed);
             json.put("ts", System.currentTimeMillis());
+            json.put("seq", sequence);
         } catch (Exception e) {
             // should not happen
         }
@@ -4,18 +4,16 @@ import android.annotation.SuppressLint;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Handler;
-import android.text.Spannable;
-import android.text.SpannableString;
-import android.text.style.ForegroundColorSpan;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
-import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
+import android.widget.ListView;
 import android.widget.PopupWindow;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -27,25 +25,55 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.google.android.gms.maps.model.TileProvider;
 import com.google.android.material.slider.Slider;
 
 import org.json.JSONObject;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 
 public class DashboardActivity extends AppCompatActivity implements OnMapReadyCallback {
     private GoogleMap map;
     private TextView btnArm, btnDisarm, btnExamine, onlineBadge;
     private View joystickHandle, joystickBase;
+    private final StickFilter stickFilter = new StickFilter();
+    private JoystickController joystick;
     public Slider slider;
 
     // TCP client
     private TcpClient tcpClient;
+    // Joystick/throttle datagrams once the vehicle offers a UDP port; arm/disarm stay on TCP
+    private UdpControlChannel udpControl;
+    private boolean sentArmed = false;
+    // Control frames of the current connection; counted, not logged one by one
+    private long framesSent;
+    private long framesSentViaUdp;
+
+    // Round trip of control frames, from the vehicle's echoes; reset per connection
+    private final RttTracker rtt = new RttTracker();
+    private static final int MIN_RTT_SAMPLES = 10;
+    private static final long RTT_GOOD_MICROS = 80_000;
+    private static final long RTT_FAIR_MICROS = 200_000;
+    private static final int COLOR_RTT_GOOD = 0xFF22C55E;
+    private static final int COLOR_RTT_FAIR = 0xFFF59E0B;
+    private static final int COLOR_RTT_POOR = 0xFFF97316;
+    private static final int COLOR_OFFLINE = Color.RED;
 
     // Logging
-    private String logMessages = "";
+    private static final int LOG_CAPACITY = 2000; // entries
+    private final LogRing logRing = new LogRing(LOG_CAPACITY);
     private String statusMessages = "";
 
     private boolean armStatus = false;
@@ -54,26 +82,118 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
     private PopupWindow logPopUpWindow;
 
     // Popup UI elements (from your XML)
-    private TextView logTextBox;
-    private ScrollView logScrollView;
+    private LogListAdapter logAdapter;
+    private volatile boolean logChanged;
 
     private ControlState controlState;
+    private final ControlFrameCodec frameCodec = new ControlFrameCodec();
+    // JSON until the vehicle answers our hello with a binary codec
+    private ControlFrameCodec.Format wireFormat = ControlFrameCodec.Format.JSON;
     private static final String TAG = "ControlActivity";
 
-    private static final String TARGET_IP = "10.42.0.1";  // adjust if needed
-    private static final int TARGET_PORT = 5000;
+    static final String TARGET_IP = "10.42.0.1";  // adjust if needed
+    static final int TARGET_PORT = 5000;
+
+    // Fleet mode: launched with a list of "host:port" vehicles instead of the single target.
+    // All of them stay connected; the controls and sensor cards follow the focused one.
+    static final String EXTRA_FLEET = "fleet";
+    private FleetManager fleet;
+
+    // Control frames go out at this fixed rate; idle ticks are suppressed
+    private static final int CONTROL_RATE_HZ = 50;
+    private ControlPublisher controlPublisher;
+
+    // Telemetry: decoded on the TCP reader thread, only the newest snapshot reaches the UI
+    private final TelemetryDecoder telemetryDecoder = new TelemetryDecoder();
+    // Compact "tlm1" frames, if the vehicle accepted them in the hello
+    private final TelemetryDeltaCodec.Decoder telemetryDeltaDecoder = new TelemetryDeltaCodec.Decoder();
+    private final TelemetrySnapshot telemetryState = new TelemetrySnapshot();
+    private final TelemetryMailbox telemetryMailbox = new TelemetryMailbox();
+    private static final int[] CARD_FIELDS = {
+            TelemetrySnapshot.F_PH, TelemetrySnapshot.F_DO, TelemetrySnapshot.F_TEMP,
+            TelemetrySnapshot.F_TURBIDITY, TelemetrySnapshot.F_AMMONIA
+    };
+    private final TextView[] sensorValues = new TextView[CARD_FIELDS.length];
+    // Display resolution per card; a card is only redrawn when its rounded value changes
+    private static final double[] CARD_STEPS = {0.1, 0.1, 0.1, 0.1, 0.01};
+    private final long[] shownSteps = new long[CARD_FIELDS.length];
+
+    // Views are only touched from the frame-paced render pass below; everything
+    // else invalidates it. The badge is redrawn when its snapshot differs.
+    private final RenderLoop renderLoop = new RenderLoop(this::renderFrame);
+    private LinkStatus shownLinkStatus;
+
+    // Fixed-size per-sensor history (about an hour at 10 Hz)
+    private static final int HISTORY_SAMPLES = 36_000;
+    private final SensorHistory sensorHistory = new SensorHistory(HISTORY_SAMPLES);
+
+    // Vehicle track: every decoded position is queued and added on the main
+    // thread, also while no frames are drawn. Frozen chunks are drawn once; the
+    // tail polyline is redrawn by the render pass.
+    private static final double TRACK_TOLERANCE_M = 1.0;
+    private static final int TRACK_SEGMENT_POINTS = 64;
+    private static final int TRACK_POINT_BUDGET = 2000;
+    private static final int POSITION_QUEUE = 1024;
+    private static final int COLOR_TRACK = 0xFF38BDF8;
+    private static final float TRACK_WIDTH_PX = 6f;
+    private final PositionRing positions = new PositionRing(POSITION_QUEUE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable drainPositions = this::drainPositions;
+    private final HashMap<Integer, Polyline> trackChunks = new HashMap<>();
+    private final ArrayList<LatLng> trackTailPoints = new ArrayList<>();
+    private Polyline trackTail;
+    private boolean trackTailChanged;
+    private double trackLat, trackLon;  // newest position added to the track
+    private final VehicleTrack track = new VehicleTrack(TRACK_TOLERANCE_M, TRACK_SEGMENT_POINTS,
+            TRACK_POINT_BUDGET, new VehicleTrack.Sink() {
+        @Override
+        public void onChunkAdded(int chunkId, double[] lat, double[] lon) {
+            if (map == null) return;  // replayed in onMapReady
+            ArrayList<LatLng> points = new ArrayList<>(lat.length);
+            for (int i = 0; i < lat.length; i++) points.add(new LatLng(lat[i], lon[i]));
+            trackChunks.put(chunkId, map.addPolyline(new PolylineOptions()
+                    .addAll(points).color(COLOR_TRACK).width(TRACK_WIDTH_PX)));
+        }
+
+        @Override
+        public void onChunkRemoved(int chunkId) {
+            Polyline line = trackChunks.remove(chunkId);
+            if (line != null) line.remove();
+        }
+
+        @Override
+        public void onTailChanged(double[] lat, double[] lon, int count) {
+            if (map == null) return;
+            // Kept points stay put; only rebuild from the first one that moved
+            int same = 0;
+            while (same < count - 1 && same < trackTailPoints.size()
+                    && trackTailPoints.get(same).latitude == lat[same]
+                    && trackTailPoints.get(same).longitude == lon[same]) {
+                same++;
+            }
+            trackTailPoints.subList(same, trackTailPoints.size()).clear();
+            for (int i = same; i < count; i++) trackTailPoints.add(new LatLng(lat[i], lon[i]));
+            trackTailChanged = true;
+        }
+    });
+
+    // Offline map tiles, copied to Android/data/<package>/files/tiles.mtpk
+    // (see OfflineTileStore.writePack). Tiles near the vehicle are prefetched.
+    private static final String OFFLINE_TILES_FILE = "tiles.mtpk";
+    private static final long TILE_CACHE_BYTES = 16L * 1024 * 1024;
+    private static final int TILE_PREFETCH_RADIUS = 2;
+    private OfflineTileStore offlineTiles;
 
-    private Handler handler = new Handler();
-    private Runnable sendDataRunnable;
+    // Flight recorder: 8 MB segments, newest 16 kept under files/flight
+    private static final long FLIGHT_SEGMENT_BYTES = 8L * 1024 * 1024;
+    private static final int FLIGHT_MAX_SEGMENTS = 16;
+    private FlightRecorder flightRecorder;
 
     private float throttle = 0f;
 
     private long lastDisconnectToastMs = 0L;
     private static final long TOAST_THROTTLE_MS = 3000L;
 
-    // Log trimming
-    private static final int MAX_LOG_LENGTH = 30_000; // characters
-
     @SuppressLint("ClickableViewAccessibility")
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -82,31 +202,25 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
 
         controlState = new ControlState();
 
-        // Initialize tcp client with callbacks that run on main thread (TcpClient posts status on main handler)
-        tcpClient = new TcpClient(new TcpClient.TcpCallback() {
-            @Override
-            public void onMessageReceived(String message) {
-                // message from server
-                appendLog("RECV", message);
-                Log.d(TAG, "TCP MSG: " + message);
-            }
-
-            @Override
-            public void onStatusChanged(String status) {
-                appendLog("INFO", status);
-                statusMessages += "\n" + status;
-                Log.d(TAG, "TCP STATUS: " + status);
-                updateOnlineBadge();
-            }
+        // Fleet mode keeps a connection per vehicle; the single link and its
+        // recorder are only built without it
+        String[] fleetEndpoints = getIntent().getStringArrayExtra(EXTRA_FLEET);
+        if (fleetEndpoints != null && fleetEndpoints.length > 0) startFleet(fleetEndpoints);
+        if (fleet == null) createLink();
+
+        // Take the socket LoadingActivity opened during launch, or connect ourselves
+        StartupPipeline.mark(StartupPipeline.Stage.DASHBOARD_CREATED);
+        StartupPipeline.claimConnection(ch -> {
+            if (fleet != null) closeQuietly(ch);  // the fleet opens its own connections
+            else if (ch != null) tcpClient.adopt(ch, TARGET_IP, TARGET_PORT);
+            else tcpClient.connect(TARGET_IP, TARGET_PORT);
         });
 
-        // connect
-        tcpClient.connect(TARGET_IP, TARGET_PORT);
-
         bind();
         setupListeners();
 
-        // Map Fragment
+        // Map Fragment; the offline tiles must be open before the map is ready
+        openOfflineTiles();
         SupportMapFragment mapFragment = (SupportMapFragment)
                 getSupportFragmentManager().findFragmentById(R.id.map);
         if (mapFragment != null) mapFragment.getMapAsync(this);
@@ -119,21 +233,82 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
         for (int i = 0; i < cardIds.length; i++) {
             TextView name = findViewById(cardIds[i]).findViewById(R.id.sensorName);
             TextView unit = findViewById(cardIds[i]).findViewById(R.id.sensorUnit);
+            sensorValues[i] = findViewById(cardIds[i]).findViewById(R.id.sensorValue);
             name.setText(names[i]);
             unit.setText(units[i]);
         }
+        Arrays.fill(shownSteps, Long.MIN_VALUE);  // nothing shown yet
+
+        // Stream the latest control state at a fixed rate
+        controlPublisher = new ControlPublisher(controlState, CONTROL_RATE_HZ, state -> sendDataToServer(false));
+        controlPublisher.start();
+
+        renderLoop.invalidate();
+    }
 
-        // Send control JSON every 2 seconds
-        sendDataRunnable = new Runnable() {
+    // Single-vehicle link: TCP session, UDP control channel and flight recorder
+    private void createLink() {
+        // Initialize tcp client with callbacks that run on main thread (TcpClient posts status on main handler)
+        tcpClient = new TcpClient(new TcpClient.TcpCallback() {
             @Override
-            public void run() {
-                sendDataToServer();
-                handler.postDelayed(this, 2000);
+            public void onMessageReceived(String message) {
+                // message from server
+                appendLog(LogRing.Level.RECV, message);
+                Log.d(TAG, "TCP MSG: " + message);
+                maybeNegotiateCodec(message);
             }
-        };
-        handler.postDelayed(sendDataRunnable, 2000);
 
-        updateOnlineBadge();
+            @Override
+            public void onLinkDead(long silentMs) {
+                engageFailsafe("Link dead: nothing heard for " + silentMs + " ms");
+            }
+
+            @Override
+            public void onStatusChanged(String status) {
+                appendLog(LogRing.Level.INFO, status);
+                statusMessages += "\n" + status;
+                Log.d(TAG, "TCP STATUS: " + status);
+                if ("Connected".equals(status)) {
+                    StartupPipeline.mark(StartupPipeline.Stage.LINK_READY);
+                    rtt.reset();
+                    framesSent = framesSentViaUdp = 0;
+                    // deltas of the old connection don't apply; wait for a keyframe
+                    telemetryDeltaDecoder.reset();
+                    sendCodecHello();
+                    // don't wait for the next change or keepalive to send the state
+                    if (controlPublisher != null) controlPublisher.publishNow();
+                } else {
+                    udpControl.close();  // reopened by the next hello reply
+                    if (framesSent > 0) {
+                        appendLog(LogRing.Level.INFO, "Control frames sent: " + framesSent
+                                + " (" + framesSentViaUdp + " via UDP)");
+                        framesSent = framesSentViaUdp = 0;
+                    }
+                    // Close out the RTT stats of the connection that just ended
+                    if (rtt.histogram().count() > 0) {
+                        appendLog(LogRing.Level.INFO, rtt.summary());
+                        rtt.reset();
+                    }
+                }
+                renderLoop.invalidate();
+            }
+        });
+
+        udpControl = new UdpControlChannel((active, detail) -> {
+            appendLog(LogRing.Level.INFO, detail);
+            renderLoop.invalidate();
+        });
+
+        flightRecorder = new FlightRecorder(new File(getFilesDir(), "flight"),
+                FLIGHT_SEGMENT_BYTES, FLIGHT_MAX_SEGMENTS, 1024, 1024);
+        flightRecorder.start();
+        tcpClient.setRecorder(flightRecorder);
+        udpControl.setRecorder(flightRecorder);
+
+        tcpClient.setBinaryCallback((type, payload) -> onEchoFrame(type, payload)
+                || ((type == FrameReader.TYPE_TEXT || type == FrameReader.TYPE_TELEMETRY)
+                        && onTelemetryFrame(payload)));
+        udpControl.setEchoCallback(this::onEchoFrame);
     }
 
     private void bind() {
@@ -156,14 +331,14 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
     private void setupListeners() {
         // ARM
         btnArm.setOnClickListener(view -> {
-            if (tcpClient.isConnected()) {
+            if (isLinkUp()) {
                 if (!armStatus) {
                     armStatus = true;
                     controlState.setArmed(true);
                     btnArm.setBackgroundResource(R.drawable.bg_button_glow);
                     btnDisarm.setBackgroundResource(R.drawable.bg_button_glow_low);
-                    sendDataToServer();
-                    appendLog("INFO", "ARM command sent");
+                    publishNow();
+                    appendLog(LogRing.Level.INFO, "ARM command sent");
                 } else {
                     Toast.makeText(this, "Already Armed", Toast.LENGTH_SHORT).show();
                 }
@@ -179,8 +354,8 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
                 controlState.setArmed(false);
                 btnArm.setBackgroundResource(R.drawable.bg_button_glow_high);
                 btnDisarm.setBackgroundResource(R.drawable.bg_button_glow);
-                sendDataToServer();
-                appendLog("INFO", "DISARM command sent");
+                publishNow();
+                appendLog(LogRing.Level.INFO, "DISARM command sent");
             }
         });
 
@@ -190,82 +365,70 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
 
         // RECONNECT
         reConnect.setOnClickListener(view -> {
-            appendLog("INFO", "Manual reconnect requested");
-            tcpClient.connect(TARGET_IP, TARGET_PORT);
-            updateOnlineBadge();
+            appendLog(LogRing.Level.INFO, "Manual reconnect requested");
+            if (fleet != null) {
+                if (fleet.focused() != null) fleet.reconnect(fleet.focused());
+            } else {
+                tcpClient.connect(TARGET_IP, TARGET_PORT);
+            }
+            renderLoop.invalidate();
         });
 
         // SHOW LOG POPUP
         logPopin.setOnClickListener(v -> showLogPopup());
 
-        // SLIDER
-        slider.addOnSliderTouchListener(new Slider.OnSliderTouchListener() {
-            @Override
-            public void onStartTrackingTouch(@NonNull Slider slider) {}
-
-            @Override
-            public void onStopTrackingTouch(@NonNull Slider slider) {
-                throttle = slider.getValue();
-                controlState.setThrottle(throttle);
-                sendDataToServer();
-            }
+        // FLEET: long-press the status badge to control the next vehicle
+        onlineBadge.setOnLongClickListener(v -> {
+            if (fleet == null) return false;
+            focusNextVehicle();
+            return true;
         });
 
-        // JOYSTICK
-        joystickHandle.setOnTouchListener((v, event) -> {
-            float centerX = joystickBase.getX() + joystickBase.getWidth() / 2f;
-            float centerY = joystickBase.getY() + joystickBase.getHeight() / 2f;
-            float radius = joystickBase.getWidth() / 2f;
-
-            float rawX = event.getRawX();
-            float rawY = event.getRawY();
-
-            int[] baseLoc = new int[2];
-            joystickBase.getLocationOnScreen(baseLoc);
-
-            float localX = rawX - (baseLoc[0] + joystickBase.getWidth() / 2f);
-            float localY = rawY - (baseLoc[1] + joystickBase.getHeight() / 2f);
-
-            switch (event.getAction()) {
-                case MotionEvent.ACTION_MOVE:
-                    float dx = localX;
-                    float dy = localY;
-
-                    float dist = (float) Math.sqrt(dx * dx + dy * dy);
+        // SLIDER: streams through the publisher while dragging
+        slider.addOnChangeListener((s, value, fromUser) -> {
+            throttle = value;
+            controlState.setThrottle(throttle);
+        });
 
-                    float cx, cy;
-                    if (dist > radius) {
-                        cx = dx * radius / dist;
-                        cy = dy * radius / dist;
-                    } else {
-                        cx = dx;
-                        cy = dy;
+        // JOYSTICK: filtered and shaped; the publisher streams the position
+        joystick = new JoystickController(joystickBase, joystickHandle, stickFilter,
+                new JoystickController.Listener() {
+                    @Override
+                    public void onStick(double x, double y) {
+                        controlState.setPosition(x, y);
                     }
 
-                    joystickHandle.setX(centerX + cx - joystickHandle.getWidth() / 2f);
-                    joystickHandle.setY(centerY + cy - joystickHandle.getHeight() / 2f);
-
-                    float nx = cx / radius;
-                    float ny = cy / radius;
-
-                    controlState.setPosition(nx, ny);
-                    sendDataToServer();
-                    break;
+                    @Override
+                    public void onRelease() {
+                        controlState.setPosition(0, 0);
+                        publishNow();
+                    }
+                });
+    }
 
-                case MotionEvent.ACTION_UP:
-                case MotionEvent.ACTION_CANCEL:
-                    joystickHandle.animate()
-                            .x(centerX - joystickHandle.getWidth() / 2f)
-                            .y(centerY - joystickHandle.getHeight() / 2f)
-                            .setDuration(100)
-                            .start();
+    // The vehicle must not keep running on the last stick input: go neutral and
+    // disarmed here, and send that state. Until the vehicle confirms it, a resumed
+    // session sends it again as a command as soon as the hello is answered.
+    private void engageFailsafe(String reason) {
+        appendLog(LogRing.Level.ERROR, reason + " — failsafe: neutral, disarmed");
+        if (udpControl != null) udpControl.close();  // the neutral frame must go through the TCP session
+        controlState.setNeutral();
+        throttle = 0f;
+        slider.setValue(0f);
+        armStatus = false;
+        btnArm.setBackgroundResource(R.drawable.bg_button_glow_high);
+        btnDisarm.setBackgroundResource(R.drawable.bg_button_glow);
+        joystick.recenter();
+        publishNow();
+    }
 
-                    controlState.setPosition(0, 0);
-                    sendDataToServer();
-                    break;
-            }
-            return true;
-        });
+    // Send the state now rather than on the next tick: arm/disarm, stick release
+    // and failsafe. In fleet mode the publisher only hands the state to the
+    // focused vehicle, so its send is forced here.
+    private void publishNow() {
+        controlPublisher.publishNow();
+        FleetManager.Vehicle v = fleet != null ? fleet.focused() : null;
+        if (v != null) fleet.publishNow(v);
     }
 
     // Show popup and wire its log views
@@ -278,17 +441,11 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
         LayoutInflater inflater = LayoutInflater.from(this);
         View logView = inflater.inflate(R.layout.log_view, null);
 
-        // find popup UI elements
-        logTextBox = logView.findViewById(R.id.logTextBox);
-        logScrollView = logView.findViewById(R.id.scrollView4);
-
-        // set initial text
-        logTextBox.setText(""); // clear (we append using appendLog history if needed)
-        if (!logMessages.isEmpty()) {
-            // replay recent messages (logMessages is plain text; we store timestamped lines there)
-            logTextBox.setText(logMessages);
-            scrollToBottom();
-        }
+        // The list only binds the rows on screen; transcript mode keeps it pinned to the newest
+        ListView logList = logView.findViewById(R.id.logList);
+        logAdapter = new LogListAdapter(inflater, logRing);
+        logList.setAdapter(logAdapter);
+        logList.setSelection(logAdapter.getCount() - 1);
 
         ImageButton back = logView.findViewById(R.id.imageButtonBack);
         if (back != null) {
@@ -304,6 +461,7 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
                 true
         );
 
+        logPopUpWindow.setOnDismissListener(() -> logAdapter = null);
         logPopUpWindow.setElevation(10);
         logPopUpWindow.setAnimationStyle(android.R.style.Animation_Dialog);
         logPopUpWindow.setOutsideTouchable(true);
@@ -313,61 +471,217 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
         logPopUpWindow.showAtLocation(rootView, Gravity.CENTER, 0, -290);
     }
 
-    // Append log to UI safely; level is "INFO", "RECV", "ERROR"
-    private void appendLog(String level, String message) {
-        // Build timestamped line
-        String ts = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
-        String line = String.format("[%s] %s: %s\n", ts, level, message);
+    // Append a log entry; O(1) no matter how long the session has run
+    private void appendLog(LogRing.Level level, String message) {
+        logRing.append(System.currentTimeMillis(), level, message);
 
-        // Keep backup of text-only logs (for popup replay if recreated)
-        logMessages += line;
-        if (logMessages.length() > MAX_LOG_LENGTH) {
-            // trim oldest
-            logMessages = logMessages.substring(logMessages.length() - MAX_LOG_LENGTH);
+        // If the popup is open, rebind the rows on screen in the next frame
+        logChanged = true;
+        if (logAdapter != null) renderLoop.invalidate();
+    }
+
+    // Network threads: true if the frame was the vehicle's echo of a control frame
+    private boolean onEchoFrame(int type, ByteBuffer payload) {
+        long now = System.nanoTime();
+        int p = payload.position();
+        switch (type) {
+            case FrameReader.TYPE_ACK:
+                if (payload.remaining() >= 4) onEcho(payload.getInt(p), now);
+                return true;
+            case FrameReader.TYPE_CONTROL:
+                if (ControlFrameCodec.isBinaryFrame(payload)) onEcho(payload.getInt(p + 4), now);
+                return true;
+            case FrameReader.TYPE_TEXT:
+                long ack = RttTracker.parseAck(payload);
+                if (ack == RttTracker.NO_ACK) return false;
+                onEcho((int) ack, now);
+                return true;
+            default:
+                return false;
         }
+    }
 
-        // If popup view exists and logTextBox is available, append with color
-        runOnUiThread(() -> {
-            if (logTextBox == null) {
-                // popup not created yet; nothing to update UI-wise
-                return;
-            }
+    private void onEcho(int seq, long nanoTime) {
+        rtt.onEcho(seq, nanoTime);
+        // an acknowledged command is not sent again on the next session
+        tcpClient.acknowledge(seq);
+    }
+
+    // TCP reader thread: true if the frame was telemetry and has been handled
+    private boolean onTelemetryFrame(ByteBuffer payload) {
+        if (TelemetryDeltaCodec.isFrame(payload)) {
+            // a delta waiting for its keyframe is still ours, not a text message
+            if (!telemetryDeltaDecoder.decode(payload, telemetryState)) return true;
+        } else if (!telemetryDecoder.decode(payload, telemetryState)) {
+            return false;
+        }
+        // monotonic: the series are searched by time, and the wall clock can jump back
+        sensorHistory.record(SystemClock.elapsedRealtime(), telemetryState);
+        if (telemetryState.positionUpdated()
+                && positions.offer(telemetryState.latitude, telemetryState.longitude)) {
+            mainHandler.post(drainPositions);
+        }
+        // Only wake the UI if it already picked up the previous snapshot
+        if (telemetryMailbox.publish(telemetryState)) renderLoop.invalidate();
+        return true;
+    }
 
-            int color = Color.WHITE;
-            if ("ERROR".equals(level)) color = Color.parseColor("#ff4d4d");
-            else if ("RECV".equals(level)) color = Color.parseColor("#b3e5fc"); // light blue
-            else if ("INFO".equals(level)) color = Color.parseColor("#c8e6c9"); // light green
+    // ---------------------------------------------------------
+    // RENDERING (main thread, at most once per frame)
+    // ---------------------------------------------------------
+    private void renderFrame(long frameTimeNanos) {
+        renderTelemetry();
+        renderTrack();
+        renderLinkStatus();
+        if (logChanged && logAdapter != null) {
+            logChanged = false;
+            logAdapter.notifyDataSetChanged();
+        }
+    }
 
-            SpannableString spannable = new SpannableString(line);
-            spannable.setSpan(new ForegroundColorSpan(color), 0, line.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+    private void renderTelemetry() {
+        FleetManager.Vehicle focused = fleet != null ? fleet.focused() : null;
+        TelemetrySnapshot t = (focused != null ? focused.telemetry : telemetryMailbox).latest();
+        for (int i = 0; i < CARD_FIELDS.length; i++) {
+            if (sensorValues[i] == null || !t.has(CARD_FIELDS[i])) continue;
+            long steps = Math.round(sensorValue(CARD_FIELDS[i], t) / CARD_STEPS[i]);
+            if (steps == shownSteps[i]) continue;
+            shownSteps[i] = steps;
+            sensorValues[i].setText(formatSensor(CARD_FIELDS[i], t));
+        }
+    }
 
-            // Append
-            CharSequence prev = logTextBox.getText();
-            logTextBox.setText(""); // replace with combined to avoid repeated setSpan shifting
-            logTextBox.append(prev);
-            logTextBox.append(spannable);
+    private void renderTrack() {
+        if (!trackTailChanged || map == null) return;
+        trackTailChanged = false;
+        if (trackTail == null) {
+            trackTail = map.addPolyline(new PolylineOptions().color(COLOR_TRACK).width(TRACK_WIDTH_PX));
+        }
+        trackTail.setPoints(trackTailPoints);
+    }
 
-            // auto-scroll
-            scrollToBottom();
-        });
+    // Main thread, posted when the queue was empty; runs without frames too,
+    // so no position is lost while the screen is off
+    private void drainPositions() {
+        FleetManager.Vehicle focused = fleet != null ? fleet.focused() : null;
+        PositionRing ring = focused != null ? focused.positions : positions;
+        if (ring.drain(this::addTrackPoint) == 0) return;
+        if (offlineTiles != null && map != null) {
+            offlineTiles.prefetchAround(trackLat, trackLon,
+                    (int) map.getCameraPosition().zoom, TILE_PREFETCH_RADIUS);
+        }
+        renderLoop.invalidate();
     }
 
-    private void scrollToBottom() {
-        if (logScrollView == null || logTextBox == null) return;
-        logScrollView.post(() -> logScrollView.fullScroll(View.FOCUS_DOWN));
+    private void addTrackPoint(double lat, double lon) {
+        if (track.pointCount() == 0 && map != null) {
+            map.moveCamera(CameraUpdateFactory.newLatLng(new LatLng(lat, lon)));
+        }
+        track.add(lat, lon);
+        trackLat = lat;
+        trackLon = lon;
     }
 
-    private void updateOnlineBadge() {
-        if (onlineBadge == null) return;
-        if (tcpClient != null && tcpClient.isConnected()) {
-            onlineBadge.setBackgroundResource(R.drawable.bg_status_badge_online);
-            onlineBadge.setTextColor(Color.parseColor("#22c55e"));
-            onlineBadge.setText("Online");
+    private void openOfflineTiles() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), OFFLINE_TILES_FILE);
+        if (!file.isFile()) return;
+        try {
+            // mapping reads nothing yet, so this is fine on the main thread
+            offlineTiles = new OfflineTileStore(file, TILE_CACHE_BYTES);
+            appendLog(LogRing.Level.INFO, "Offline tiles: zoom " + offlineTiles.minZoom()
+                    + "-" + offlineTiles.maxZoom());
+        } catch (IOException e) {
+            appendLog(LogRing.Level.ERROR, "Offline tiles unusable: " + e.getMessage());
+        }
+    }
+
+    // Called by the map on its own tile threads
+    private Tile offlineTile(int x, int y, int zoom) {
+        byte[] data = offlineTiles.tile(zoom, x, y);
+        if (data == null) return TileProvider.NO_TILE;
+        int size = offlineTiles.tileSize();
+        return new Tile(size, size, data);
+    }
+
+    private static double sensorValue(int field, TelemetrySnapshot t) {
+        switch (field) {
+            case TelemetrySnapshot.F_PH: return t.ph;
+            case TelemetrySnapshot.F_DO: return t.dissolvedOxygen;
+            case TelemetrySnapshot.F_TEMP: return t.temperature;
+            case TelemetrySnapshot.F_TURBIDITY: return t.turbidity;
+            default: return t.ammonia;
+        }
+    }
+
+    private static String formatSensor(int field, TelemetrySnapshot t) {
+        switch (field) {
+            case TelemetrySnapshot.F_PH: return String.format(Locale.US, "%.1f", t.ph);
+            case TelemetrySnapshot.F_DO: return String.format(Locale.US, "%.1f", t.dissolvedOxygen);
+            case TelemetrySnapshot.F_TEMP: return String.format(Locale.US, "%.1f", t.temperature);
+            case TelemetrySnapshot.F_TURBIDITY: return String.format(Locale.US, "%.1f", t.turbidity);
+            default: return String.format(Locale.US, "%.2f", t.ammonia);
+        }
+    }
+
+    private boolean isLinkUp() {
+        if (fleet != null) return fleet.focused() != null && fleet.focused().isConnected();
+        return tcpClient != null && tcpClient.isConnected();
+    }
+
+    /** What the status badge shows; built once per frame and compared to the last one drawn. */
+    private static final class LinkStatus {
+        final boolean online;
+        final String label;
+        final long p90Ms;  // -1 until there are enough samples
+        final int textColor;
+
+        LinkStatus(boolean online, String label, long p90Ms, int textColor) {
+            this.online = online;
+            this.label = label;
+            this.p90Ms = p90Ms;
+            this.textColor = textColor;
+        }
+
+        boolean sameText(LinkStatus o) {
+            return p90Ms == o.p90Ms && label.equals(o.label);
+        }
+    }
+
+    private LinkStatus currentLinkStatus() {
+        if (!isLinkUp()) {
+            return new LinkStatus(false, fleet != null && fleet.focused() != null
+                    ? "Offline · " + fleet.focused().id : "Offline", -1, COLOR_OFFLINE);
+        }
+        String channel;
+        LatencyHistogram h;
+        if (fleet != null) {
+            channel = "Online · " + fleet.focused().id;
+            h = fleet.focused().rttHistogram();
         } else {
-            onlineBadge.setBackgroundResource(R.drawable.bg_status_badge_offline);
-            onlineBadge.setTextColor(Color.RED);
-            onlineBadge.setText("Offline");
+            channel = udpControl != null && udpControl.isActive() ? "Online · UDP" : "Online · TCP";
+            h = rtt.histogram();
         }
+        if (h.count() < MIN_RTT_SAMPLES) return new LinkStatus(true, channel, -1, COLOR_RTT_GOOD);
+        // Colour by p90 so a degrading link shows before the pilot feels it
+        long p90 = h.percentileMicros(90);
+        return new LinkStatus(true, channel, p90 / 1000, p90 <= RTT_GOOD_MICROS ? COLOR_RTT_GOOD
+                : p90 <= RTT_FAIR_MICROS ? COLOR_RTT_FAIR : COLOR_RTT_POOR);
+    }
+
+    private void renderLinkStatus() {
+        if (onlineBadge == null) return;
+        LinkStatus now = currentLinkStatus();
+        LinkStatus was = shownLinkStatus;
+        if (was == null || now.online != was.online) {
+            onlineBadge.setBackgroundResource(now.online
+                    ? R.drawable.bg_status_badge_online : R.drawable.bg_status_badge_offline);
+        }
+        if (was == null || now.textColor != was.textColor) onlineBadge.setTextColor(now.textColor);
+        if (was == null || !now.sameText(was)) {
+            onlineBadge.setText(now.p90Ms < 0 ? now.label : now.label + " · " + now.p90Ms + " ms");
+        }
+        shownLinkStatus = now;
     }
 
     private void maybeToastDisconnected() {
@@ -378,25 +692,195 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
         }
     }
 
-    private void sendDataToServer() {
+    // Offer the binary control codec, compact telemetry, a UDP control channel
+    // and ping/pong heartbeats; every new connection starts on JSON over TCP again
+    private void sendCodecHello() {
+        wireFormat = ControlFrameCodec.Format.JSON;
+        tcpClient.send("{\"hello\":1,\"codecs\":[\""
+                + ControlFrameCodec.Format.BINARY.wireName() + "\",\""
+                + ControlFrameCodec.Format.JSON.wireName() + "\"],\"telemetry\":[\""
+                + TelemetryDeltaCodec.WIRE_NAME + "\",\"json\"],\"udp\":1,\"heartbeat\":1}");
+    }
+
+    // The vehicle answers the hello with {"codec":"bin1"} (or "json"),
+    // {"telemetry":"tlm1"} if it will stream compact telemetry,
+    // {"udp":<port>} if it accepts control datagrams
+    // and {"heartbeat":1} if it answers pings
+    private void maybeNegotiateCodec(String message) {
+        if (!message.contains("\"codec\"")) return;
+        try {
+            JSONObject reply = new JSONObject(message);
+            wireFormat = ControlFrameCodec.Format.fromWireName(reply.optString("codec", ""));
+            appendLog(LogRing.Level.INFO, "Control codec: " + wireFormat.wireName());
+            appendLog(LogRing.Level.INFO, "Telemetry codec: " + reply.optString("telemetry", "json"));
+
+            int udpPort = reply.optInt("udp", 0);
+            if (udpPort > 0) udpControl.open(TARGET_IP, udpPort);
+            else udpControl.close();
+            if (reply.optInt("heartbeat", 0) > 0) tcpClient.confirmHeartbeat();
+
+            // A resumed session gets the current state in the codec just agreed;
+            // after an arm change the vehicle never confirmed, it goes as a command
+            if (tcpClient.takeResume()) sendDataToServer(tcpClient.hasUnacknowledgedCommand());
+            renderLoop.invalidate();
+        } catch (Exception e) {
+            Log.w(TAG, "Bad codec reply: " + message, e);
+        }
+    }
+
+    // forceCommand sends the state reliably even if the armed flag did not change
+    private void sendDataToServer(boolean forceCommand) {
+        if (fleet != null) {
+            sendToFocusedVehicle();
+            return;
+        }
         if (tcpClient == null) return;
 
         try {
-            JSONObject json = controlState.toJSON();
-            tcpClient.send(json.toString());
-            appendLog("INFO", "Sent: " + json.toString());
-            updateOnlineBadge();
+            int seq = controlState.nextSequence();
+            rtt.onSent(seq, System.nanoTime());
+            // A frame that changes the armed flag must arrive: send it reliably
+            boolean armChange = controlState.isArmed() != sentArmed;
+            boolean command = armChange || forceCommand;
+            boolean viaUdp = false;
+            if (wireFormat == ControlFrameCodec.Format.BINARY) {
+                ByteBuffer frame = frameCodec.encode(controlState, System.currentTimeMillis());
+                viaUdp = !command && udpControl.send(frame);
+                if (command) tcpClient.sendCommand(seq, frame);
+                else if (!viaUdp) tcpClient.send(frame);
+            } else {
+                String json = controlState.toJSON().toString();
+                viaUdp = !command && udpControl.send(json);
+                if (command) tcpClient.sendCommand(seq, json);
+                else if (!viaUdp) tcpClient.send(json);
+            }
+            if (!viaUdp) sentArmed = controlState.isArmed();
+            framesSent++;
+            if (viaUdp) framesSentViaUdp++;
+            // A line per frame would flood the log at the control rate
+            if (command) {
+                appendLog(LogRing.Level.INFO, (forceCommand && !armChange ? "Resent " : "Sent ")
+                        + (controlState.isArmed() ? "arm #" : "disarm #") + seq);
+            } else if (framesSent == 1) {
+                appendLog(LogRing.Level.INFO, "First control frame #" + seq + (viaUdp ? " (udp)" : ""));
+            }
+            if ((viaUdp || tcpClient.isConnected())
+                    && StartupPipeline.mark(StartupPipeline.Stage.FIRST_CONTROL_FRAME)) {
+                appendLog(LogRing.Level.INFO, StartupPipeline.summary());
+            }
+            renderLoop.invalidate();
         } catch (Exception e) {
-            appendLog("ERROR", "Send failed: " + e.getMessage());
+            appendLog(LogRing.Level.ERROR, "Send failed: " + e.getMessage());
             Log.e(TAG, "SEND ERROR", e);
         }
     }
 
+    // ---------------------------------------------------------
+    // FLEET MODE
+    // ---------------------------------------------------------
+    private void startFleet(String[] endpoints) {
+        fleet = new FleetManager(new FleetManager.Listener() {
+            @Override
+            public void onStateChanged(FleetManager.Vehicle vehicle) {
+                appendLog(LogRing.Level.INFO, vehicle.id + ": " + vehicle.state());
+                renderLoop.invalidate();
+            }
+
+            @Override
+            public void onTelemetry(FleetManager.Vehicle vehicle) {
+                if (vehicle == fleet.focused()) renderLoop.invalidate();
+            }
+
+            @Override
+            public void onPositions(FleetManager.Vehicle vehicle) {
+                drainPositions();
+            }
+
+            @Override
+            public void onLinkDead(FleetManager.Vehicle vehicle, long silentMs) {
+                String reason = vehicle.id + " link dead: nothing heard for " + silentMs + " ms";
+                if (vehicle == fleet.focused()) engageFailsafe(reason);
+                else appendLog(LogRing.Level.ERROR, reason + " — failsafe: neutral, disarmed");
+            }
+        });
+        for (int i = 0; i < endpoints.length; i++) {
+            ReachabilityProbe.Endpoint e = ReachabilityProbe.Endpoint.parse(endpoints[i]);
+            if (e == null) {
+                appendLog(LogRing.Level.ERROR, "Bad fleet endpoint: " + endpoints[i]);
+                continue;
+            }
+            fleet.add("AUV " + (i + 1), e.host, e.port);
+        }
+        try {
+            fleet.start();
+            appendLog(LogRing.Level.INFO, "Fleet mode: " + fleet.vehicles().size() + " vehicles");
+        } catch (IOException e) {
+            appendLog(LogRing.Level.ERROR, "Fleet mode failed: " + e.getMessage());
+            Log.e(TAG, "FLEET ERROR", e);
+            fleet = null;
+        }
+    }
+
+    // Publisher sink in fleet mode: only hand over the state. The manager's own
+    // tick encodes, rate-limits and sends it, and keeps the link alive.
+    private void sendToFocusedVehicle() {
+        FleetManager.Vehicle v = fleet.focused();
+        if (v == null) return;
+        v.command(controlState);
+        renderLoop.invalidate();
+    }
+
+    private void focusNextVehicle() {
+        List<FleetManager.Vehicle> all = fleet.vehicles();
+        if (all.isEmpty()) return;
+        FleetManager.Vehicle previous = fleet.focused();
+        FleetManager.Vehicle next = all.get((all.indexOf(previous) + 1) % all.size());
+        if (next == previous) return;
+
+        // The vehicle we leave keeps its throttle and arm state, but not a held stick
+        controlState.setPosition(0, 0);
+        if (previous != null) {
+            previous.command(controlState);
+            fleet.publishNow(previous);
+        }
+        fleet.setFocus(next);
+        // the track shown is the focused vehicle's; start it afresh
+        track.clear();
+        next.positions.clear();
+
+        // The controls take over what the new vehicle was last commanded
+        throttle = (float) next.commandedThrottle();
+        armStatus = next.isCommandedArmed();
+        controlState.setThrottle(throttle);
+        controlState.setArmed(armStatus);
+        slider.setValue(throttle);
+        btnArm.setBackgroundResource(armStatus ? R.drawable.bg_button_glow : R.drawable.bg_button_glow_high);
+        btnDisarm.setBackgroundResource(armStatus ? R.drawable.bg_button_glow_low : R.drawable.bg_button_glow);
+
+        appendLog(LogRing.Level.INFO, "Focus: " + next);
+        Arrays.fill(shownSteps, Long.MIN_VALUE);
+        renderLoop.invalidate();
+    }
+
+    private static void closeQuietly(SocketChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {}
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        handler.removeCallbacks(sendDataRunnable);
+        renderLoop.stop();
+        if (fleet != null) fleet.close();
+        if (offlineTiles != null) offlineTiles.close();
+        if (controlPublisher != null) controlPublisher.stop();
+        if (udpControl != null) udpControl.close();
         if (tcpClient != null) tcpClient.close();
+        if (flightRecorder != null) flightRecorder.stop();
+        // a rotation recreates us on the same network; only leaving ends it
+        if (isFinishing()) StartupPipeline.release();
     }
 
     @Override
@@ -406,5 +890,9 @@ public class DashboardActivity extends AppCompatActivity implements OnMapReadyCa
         map.moveCamera(CameraUpdateFactory.newLatLng(pos));
         map.getUiSettings().setZoomGesturesEnabled(true);
         map.getUiSettings().setCompassEnabled(true);
+        if (offlineTiles != null) {
+            map.addTileOverlay(new TileOverlayOptions().tileProvider(this::offlineTile).zIndex(-1));
+        }
+        track.replay();  // positions that arrived before the map
     }
 }
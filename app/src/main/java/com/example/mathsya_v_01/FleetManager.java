@@ -0,0 +1,647 @@
+package com.example.mathsya_v_01;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the connections to several vehicles from one selector thread.
+ *
+ * Every {@link Vehicle} has its own commanded state, telemetry mailbox, RTT
+ * tracker and counters, but no thread of its own: connects, reads, writes,
+ * the control rate, heartbeats and reconnect backoff all run on the one
+ * "FleetManager" thread over non-blocking SocketChannels. Going from one
+ * vehicle to twenty adds sockets and a few kilobytes of buffers per vehicle,
+ * nothing else.
+ *
+ * The wire protocol is what TcpClient speaks in line mode: the codec hello,
+ * JSON or bin1 control frames, JSON or tlm1 telemetry, {"ack"} echoes and
+ * {"ping"}/{"pong"} heartbeats. A vehicle that goes silent is commanded to
+ * neutral and reconnected with the same backoff as TcpClient. As there, the
+ * fast heartbeat deadline applies only once the vehicle has answered a ping
+ * or advertised heartbeats in its hello reply; until then it gets seconds.
+ *
+ * Telemetry of every vehicle is decoded as it arrives, so switching the
+ * focused vehicle only changes which mailbox the UI reads. The listener is
+ * only woken for telemetry of the focused vehicle.
+ */
+public final class FleetManager {
+
+    private static final String TAG = "FleetManager";
+    private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(2000);
+    private static final long KEEPALIVE_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final long FALLBACK_HEARTBEAT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(LinkWatchdog.FALLBACK_INTERVAL_MS);
+    private static final int RECEIVE_BUFFER_BYTES = 8 * 1024;
+    private static final int SEND_BUFFER_BYTES = 2 * 1024;
+    // positions queued for the focused vehicle's track while the UI catches up
+    private static final int POSITION_QUEUE = 1024;
+    // reads per vehicle per wakeup, so one chatty vehicle can't starve the rest
+    private static final int MAX_READS_PER_WAKEUP = 4;
+    private static final double POSITION_EPSILON = 0.01;
+    private static final double THROTTLE_EPSILON = 0.5;
+
+    private static final String HELLO = "{\"hello\":1,\"codecs\":[\""
+            + ControlFrameCodec.Format.BINARY.wireName() + "\",\""
+            + ControlFrameCodec.Format.JSON.wireName() + "\"],\"telemetry\":[\""
+            + TelemetryDeltaCodec.WIRE_NAME + "\",\"json\"],\"heartbeat\":1}";
+
+    public interface Listener {
+        /** Main thread. The vehicle connected, lost its link or was removed. */
+        void onStateChanged(Vehicle vehicle);
+
+        /** Main thread. The focused vehicle has a new snapshot in its mailbox. */
+        default void onTelemetry(Vehicle vehicle) {}
+
+        /** Main thread. The focused vehicle has new positions in {@link Vehicle#positions}. */
+        default void onPositions(Vehicle vehicle) {}
+
+        /** Main thread. Nothing was heard for silentMs; the vehicle was commanded to neutral. */
+        default void onLinkDead(Vehicle vehicle, long silentMs) {}
+    }
+
+    // ---------------------------------------------------------
+    // VEHICLE
+    // ---------------------------------------------------------
+
+    /** One vehicle of the fleet. Create through {@link #add}. */
+    public static final class Vehicle {
+
+        public enum State { CONNECTING, CONNECTED, BACKOFF, CLOSED }
+
+        public final String id;
+        public final String host;
+        public final int port;
+        /** Newest telemetry; read it from the main thread only. */
+        public final TelemetryMailbox telemetry = new TelemetryMailbox();
+        /** Every position received while focused; drain it from the main thread only. */
+        public final PositionRing positions = new PositionRing(POSITION_QUEUE);
+
+        private final RttTracker rtt = new RttTracker();
+        private volatile State state = State.CONNECTING;
+
+        // What the pilot commands; written by the UI, sampled by the selector thread
+        private final ControlState commanded = new ControlState();  // guarded by this
+
+        // Counters: written by the selector thread only
+        private volatile long bytesIn, bytesOut, controlFrames, framesDropped, reconnects;
+
+        // Selector thread only
+        private SocketChannel channel;
+        private SelectionKey key;
+        private FrameReader reader;
+        private final ByteBuffer inBuffer = ByteBuffer.allocate(RECEIVE_BUFFER_BYTES);
+        private final ByteBuffer out = ByteBuffer.allocate(SEND_BUFFER_BYTES);
+        private final ByteBuffer binaryControl = ByteBuffer.allocate(ControlFrameCodec.FRAME_SIZE);
+        private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+        private final TelemetryDeltaCodec.Decoder deltaDecoder = new TelemetryDeltaCodec.Decoder();
+        private final ControlState wire = new ControlState();
+        private ControlFrameCodec.Format format = ControlFrameCodec.Format.JSON;
+        private Runnable telemetryReady;
+        private Runnable positionsReady;
+        private int failures;
+        private boolean heard;
+        private boolean connectedOnce;
+        private long deadlineNanos;  // connect timeout or end of backoff
+        private long lastHeardNanos;
+        private long lastPingNanos;
+        private int pings;
+        private boolean answersPings;  // fast heartbeat deadline
+        private double sentX, sentY, sentThrottle;
+        private boolean sentArmed, sentOnce;
+        private long lastSendNanos;
+
+        private Vehicle(String id, String host, int port) {
+            this.id = id;
+            this.host = host;
+            this.port = port;
+        }
+
+        // ---- commands (any thread) ----
+
+        /** Take position, throttle and armed from the UI's state. */
+        public synchronized void command(ControlState s) {
+            commanded.setPosition(s.getX(), s.getY());
+            commanded.setThrottle(s.getThrottle());
+            commanded.setArmed(s.isArmed());
+        }
+
+        /** Failsafe: stick centred, throttle zero, disarmed. */
+        public synchronized void setNeutral() {
+            commanded.setNeutral();
+        }
+
+        public synchronized double commandedThrottle() {
+            return commanded.getThrottle();
+        }
+
+        public synchronized boolean isCommandedArmed() {
+            return commanded.isArmed();
+        }
+
+        // ---- status and metrics (any thread) ----
+
+        public State state() {
+            return state;
+        }
+
+        public boolean isConnected() {
+            return state == State.CONNECTED;
+        }
+
+        public LatencyHistogram rttHistogram() {
+            return rtt.histogram();
+        }
+
+        public long bytesIn() {
+            return bytesIn;
+        }
+
+        public long bytesOut() {
+            return bytesOut;
+        }
+
+        /** Control frames put on the wire. */
+        public long controlFrames() {
+            return controlFrames;
+        }
+
+        /** Frames not sent because the socket was backed up. */
+        public long framesDropped() {
+            return framesDropped;
+        }
+
+        /** Connects after the first one. */
+        public long reconnects() {
+            return reconnects;
+        }
+
+        @Override
+        public String toString() {
+            return id + " (" + host + ":" + port + ")";
+        }
+    }
+
+    // ---------------------------------------------------------
+    // FLEET
+    // ---------------------------------------------------------
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Vehicle> vehicles = new CopyOnWriteArrayList<>();
+    // work for the selector thread, handed over from other threads
+    private final ConcurrentLinkedQueue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    private volatile Vehicle focused;
+    private volatile long controlPeriodNanos = TimeUnit.MILLISECONDS.toNanos(20);
+    private volatile long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(LinkWatchdog.DEFAULT_INTERVAL_MS);
+    private volatile int missedBeats = LinkWatchdog.DEFAULT_MISSED_BEATS;
+
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    // Selector thread only
+    private final TelemetryDecoder telemetryDecoder = new TelemetryDecoder();
+    private final FrameReader.Listener onFrame = this::onFrame;
+    private Vehicle reading;
+    private long nextControlNanos;
+
+    public FleetManager(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Control frames per second for every vehicle; idle ticks are suppressed. */
+    public void setControlRateHz(int rateHz) {
+        controlPeriodNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rateHz);
+    }
+
+    /**
+     * Ping after intervalMs of silence; declare the link dead after missedBeats
+     * intervals. Applies to vehicles that answer pings.
+     */
+    public void setHeartbeat(long intervalMs, int missedBeats) {
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, intervalMs));
+        this.missedBeats = Math.max(1, missedBeats);
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) return;
+        selector = Selector.open();
+        running = true;
+        thread = new Thread(this::run, "FleetManager");
+        thread.start();
+    }
+
+    /** Close every connection and stop the selector thread. */
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Add a vehicle and start connecting to it. host should be an address
+     * literal; a name would be resolved on the selector thread.
+     */
+    public Vehicle add(String id, String host, int port) {
+        Vehicle v = new Vehicle(id, host, port);
+        v.telemetryReady = () -> listener.onTelemetry(v);
+        v.positionsReady = () -> listener.onPositions(v);
+        vehicles.add(v);
+        if (focused == null) focused = v;
+        post(() -> connect(v, System.nanoTime()));
+        return v;
+    }
+
+    /** Disconnect a vehicle and forget it. */
+    public void remove(Vehicle v) {
+        if (!vehicles.remove(v)) return;
+        if (focused == v) focused = vehicles.isEmpty() ? null : vehicles.get(0);
+        post(() -> {
+            closeChannel(v);
+            setState(v, Vehicle.State.CLOSED);
+        });
+    }
+
+    /** All vehicles, in the order they were added. */
+    public List<Vehicle> vehicles() {
+        return vehicles;
+    }
+
+    /**
+     * The vehicle the UI shows and controls. Its mailbox already holds the
+     * latest telemetry, so the switch takes effect on the next render.
+     */
+    public void setFocus(Vehicle v) {
+        focused = v;
+    }
+
+    public Vehicle focused() {
+        return focused;
+    }
+
+    /** Send the vehicle's commanded state now (e.g. arm/disarm) instead of on the next tick. */
+    public void publishNow(Vehicle v) {
+        post(() -> {
+            if (v.state == Vehicle.State.CONNECTED) sendControl(v, System.nanoTime(), true);
+        });
+    }
+
+    /** Connect again right away, dropping the current connection or backoff. */
+    public void reconnect(Vehicle v) {
+        post(() -> {
+            if (v.state == Vehicle.State.CLOSED) return;
+            v.failures = 0;
+            connect(v, System.nanoTime());
+        });
+    }
+
+    private void post(Runnable r) {
+        pending.add(r);
+        Selector s = selector;
+        if (s != null) s.wakeup();
+    }
+
+    // ---------------------------------------------------------
+    // SELECTOR THREAD
+    // ---------------------------------------------------------
+    private void run() {
+        nextControlNanos = System.nanoTime();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                Runnable r;
+                while ((r = pending.poll()) != null) r.run();
+
+                boolean controlTick = now - nextControlNanos >= 0;
+                if (controlTick) {
+                    // fixed rate; skip ticks we missed
+                    nextControlNanos += controlPeriodNanos;
+                    if (nextControlNanos - now <= 0) nextControlNanos = now + controlPeriodNanos;
+                }
+                long waitNanos = nextControlNanos - now;
+                for (Vehicle v : vehicles) {
+                    waitNanos = Math.min(waitNanos, tick(v, now, controlTick));
+                }
+
+                selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+                now = System.nanoTime();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    handle(key, now);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Selector failed", e);
+        } finally {
+            for (Vehicle v : vehicles) {
+                closeChannel(v);
+                setState(v, Vehicle.State.CLOSED);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    // Timers of one vehicle; returns nanos until it needs the loop again
+    private long tick(Vehicle v, long now, boolean controlTick) {
+        switch (v.state) {
+            case BACKOFF:
+                if (now - v.deadlineNanos < 0) return v.deadlineNanos - now;
+                connect(v, now);
+                return CONNECT_TIMEOUT_NANOS;
+            case CONNECTING:
+                if (now - v.deadlineNanos < 0) return v.deadlineNanos - now;
+                onFailure(v, now, "Connect timed out");
+                return Long.MAX_VALUE;
+            case CONNECTED:
+                if (controlTick && checkLiveness(v, now)) sendControl(v, now, false);
+                return Long.MAX_VALUE;
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+
+    private void handle(SelectionKey key, long now) {
+        Vehicle v = (Vehicle) key.attachment();
+        if (!key.isValid() || v.key != key) return;  // closed meanwhile
+        try {
+            if (key.isConnectable()) {
+                if (v.channel.finishConnect()) onConnected(v, now);
+                return;
+            }
+            if (key.isReadable()) read(v, now);
+            if (key.isValid() && key.isWritable()) flush(v);
+        } catch (IOException e) {
+            onFailure(v, now, "Connection lost: " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------
+    // CONNECTION
+    // ---------------------------------------------------------
+    private void connect(Vehicle v, long now) {
+        closeChannel(v);
+        setState(v, Vehicle.State.CONNECTING);
+        v.deadlineNanos = now + CONNECT_TIMEOUT_NANOS;
+        try {
+            SocketChannel ch = SocketChannel.open();
+            v.channel = ch;
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            v.key = ch.register(selector, SelectionKey.OP_CONNECT, v);
+            if (ch.connect(new InetSocketAddress(v.host, v.port))) onConnected(v, now);
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException: unresolved or unsupported address
+            onFailure(v, now, "Connect failed: " + e.getMessage());
+        }
+    }
+
+    private void onConnected(Vehicle v, long now) {
+        v.key.interestOps(SelectionKey.OP_READ);
+        if (v.connectedOnce) v.reconnects++;
+        v.connectedOnce = true;
+        v.reader = new FrameReader(FrameReader.Mode.LINES, v.inBuffer);
+        v.out.clear();
+        v.format = ControlFrameCodec.Format.JSON;
+        v.deltaDecoder.reset();
+        v.rtt.reset();
+        v.heard = false;
+        v.lastHeardNanos = now;
+        v.lastPingNanos = now;
+        v.answersPings = false;
+        v.sentOnce = false;
+        setState(v, Vehicle.State.CONNECTED);
+        queueText(v, HELLO);
+        // don't wait for the next tick to send the state
+        sendControl(v, now, true);
+    }
+
+    // Close the socket and retry after the backoff delay
+    private void onFailure(Vehicle v, long now, String reason) {
+        closeChannel(v);
+        if (v.state == Vehicle.State.CLOSED) return;
+        Log.d(TAG, v.id + ": " + reason);
+        // counts until the vehicle is heard, so a peer that accepts and says nothing backs off too
+        v.failures++;
+        v.deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(TcpClient.backoffDelayMs(v.failures));
+        setState(v, Vehicle.State.BACKOFF);
+    }
+
+    private void closeChannel(Vehicle v) {
+        if (v.key != null) v.key.cancel();
+        v.key = null;
+        if (v.channel != null) {
+            try {
+                v.channel.close();
+            } catch (IOException ignored) {}
+        }
+        v.channel = null;
+    }
+
+    private void setState(Vehicle v, Vehicle.State state) {
+        if (v.state == state) return;
+        v.state = state;
+        mainHandler.post(() -> listener.onStateChanged(v));
+    }
+
+    // Ping a quiet vehicle; false if it has been quiet too long and was dropped
+    private boolean checkLiveness(Vehicle v, long now) {
+        long interval = v.answersPings ? heartbeatNanos : FALLBACK_HEARTBEAT_NANOS;
+        int beats = v.answersPings ? missedBeats : LinkWatchdog.FALLBACK_MISSED_BEATS;
+        long silent = now - v.lastHeardNanos;
+        if (silent >= interval * beats) {
+            long silentMs = TimeUnit.NANOSECONDS.toMillis(silent);
+            v.setNeutral();
+            mainHandler.post(() -> listener.onLinkDead(v, silentMs));
+            onFailure(v, now, "Link dead: nothing heard for " + silentMs + " ms");
+            return false;
+        }
+        if (silent >= interval && now - v.lastPingNanos >= interval) {
+            queueText(v, LinkWatchdog.ping(++v.pings));
+            v.lastPingNanos = now;
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------
+    // SEND
+    // ---------------------------------------------------------
+    private void sendControl(Vehicle v, long now, boolean force) {
+        ControlState s = v.wire;
+        synchronized (v) {
+            s.setPosition(v.commanded.getX(), v.commanded.getY());
+            s.setThrottle(v.commanded.getThrottle());
+            s.setArmed(v.commanded.isArmed());
+        }
+        if (!force && !hasChanged(v, s) && now - v.lastSendNanos < KEEPALIVE_NANOS) return;
+
+        int seq = s.nextSequence();
+        boolean queued;
+        if (v.format == ControlFrameCodec.Format.BINARY) {
+            v.binaryControl.clear();
+            ControlFrameCodec.encode(s, System.currentTimeMillis(), v.binaryControl);
+            v.binaryControl.flip();
+            queued = queue(v, v.binaryControl);
+        } else {
+            queued = queueText(v, s.toJSON().toString());
+        }
+        // a frame that didn't fit goes out on the next tick with the newer state
+        if (!queued) return;
+        v.rtt.onSent(seq, System.nanoTime());
+        v.controlFrames++;
+        v.sentX = s.getX();
+        v.sentY = s.getY();
+        v.sentThrottle = s.getThrottle();
+        v.sentArmed = s.isArmed();
+        v.sentOnce = true;
+        v.lastSendNanos = now;
+    }
+
+    private static boolean hasChanged(Vehicle v, ControlState s) {
+        if (!v.sentOnce) return true;
+        return s.isArmed() != v.sentArmed
+                || Math.abs(s.getX() - v.sentX) > POSITION_EPSILON
+                || Math.abs(s.getY() - v.sentY) > POSITION_EPSILON
+                || Math.abs(s.getThrottle() - v.sentThrottle) > THROTTLE_EPSILON
+                // always let the stick settle exactly on neutral
+                || (s.getX() == 0 && v.sentX != 0)
+                || (s.getY() == 0 && v.sentY != 0);
+    }
+
+    private boolean queueText(Vehicle v, String line) {
+        if (v.channel == null) return false;
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        if (v.out.remaining() < bytes.length + 1) {
+            v.framesDropped++;
+            return false;
+        }
+        v.out.put(bytes).put((byte) '\n');
+        flushQuietly(v);
+        return true;
+    }
+
+    private boolean queue(Vehicle v, ByteBuffer frame) {
+        if (v.channel == null) return false;
+        if (v.out.remaining() < frame.remaining()) {
+            v.framesDropped++;
+            return false;
+        }
+        v.out.put(frame);
+        flushQuietly(v);
+        return true;
+    }
+
+    // Write what the socket takes; wait for OP_WRITE for the rest
+    private void flush(Vehicle v) throws IOException {
+        v.out.flip();
+        try {
+            v.bytesOut += v.channel.write(v.out);
+        } finally {
+            v.out.compact();
+        }
+        int ops = SelectionKey.OP_READ | (v.out.position() > 0 ? SelectionKey.OP_WRITE : 0);
+        if (v.key.interestOps() != ops) v.key.interestOps(ops);
+    }
+
+    private void flushQuietly(Vehicle v) {
+        try {
+            flush(v);
+        } catch (IOException e) {
+            onFailure(v, System.nanoTime(), "Send failed: " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------
+    // RECEIVE
+    // ---------------------------------------------------------
+    private void read(Vehicle v, long now) throws IOException {
+        reading = v;
+        try {
+            for (int i = 0; i < MAX_READS_PER_WAKEUP && v.channel != null; i++) {
+                int n = v.reader.read(v.channel, onFrame);
+                if (n < 0) {
+                    onFailure(v, now, "Closed by vehicle");
+                    return;
+                }
+                if (n == 0) return;
+                v.bytesIn += n;
+            }
+        } finally {
+            reading = null;
+        }
+    }
+
+    private void onFrame(int type, ByteBuffer payload) {
+        Vehicle v = reading;
+        v.lastHeardNanos = System.nanoTime();
+        if (!v.heard) {
+            v.heard = true;
+            v.failures = 0;
+        }
+        if (type != FrameReader.TYPE_TEXT) return;  // line mode only yields text
+
+        if (LinkWatchdog.isPong(payload)) {
+            v.answersPings = true;
+            return;
+        }
+        if (TelemetryDeltaCodec.isFrame(payload)) {
+            if (v.deltaDecoder.decode(payload, v.snapshot)) publishTelemetry(v);
+            return;
+        }
+        long ack = RttTracker.parseAck(payload);
+        if (ack != RttTracker.NO_ACK) {
+            v.rtt.onEcho((int) ack, System.nanoTime());
+            return;
+        }
+        if (telemetryDecoder.decode(payload, v.snapshot)) {
+            publishTelemetry(v);
+            return;
+        }
+        onMessage(v, FrameReader.decodeText(payload));
+    }
+
+    private void publishTelemetry(Vehicle v) {
+        // the UI only reads the focused vehicle's mailbox, so only that one wakes it
+        if (v.telemetry.publish(v.snapshot) && v == focused) mainHandler.post(v.telemetryReady);
+        if (v == focused && v.snapshot.positionUpdated()
+                && v.positions.offer(v.snapshot.latitude, v.snapshot.longitude)) {
+            mainHandler.post(v.positionsReady);
+        }
+    }
+
+    // The vehicle answers the hello with {"codec":"bin1"} (or "json"),
+    // plus {"heartbeat":1} if it answers pings
+    private void onMessage(Vehicle v, String message) {
+        if (!message.contains("\"codec\"")) return;
+        try {
+            JSONObject reply = new JSONObject(message);
+            v.format = ControlFrameCodec.Format.fromWireName(reply.optString("codec", ""));
+            if (reply.optInt("heartbeat", 0) > 0) v.answersPings = true;
+            Log.d(TAG, v.id + ": control codec " + v.format.wireName()
+                    + ", telemetry " + reply.optString("telemetry", "json"));
+        } catch (Exception e) {
+            Log.w(TAG, v.id + ": bad codec reply: " + message, e);
+        }
+    }
+}
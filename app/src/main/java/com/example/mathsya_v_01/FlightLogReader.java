@@ -0,0 +1,77 @@
+package com.example.mathsya_v_01;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Replays a {@link FlightRecorder} segment into the same kind of frame
+ * callbacks the live transports use.
+ *
+ * At speed 1.0 records are delivered with their original spacing; at speed 0
+ * (or below) they are delivered as fast as possible.
+ */
+public final class FlightLogReader {
+
+    public interface Listener {
+        /** payload is a read-only view, valid only during the call. */
+        void onRecord(long timestampNanos, int direction, int channel, int type, ByteBuffer payload);
+    }
+
+    private FlightLogReader() {}
+
+    /**
+     * @return wall-clock time (ms) the segment was started, from its header
+     */
+    public static long replay(File segmentFile, double speed, Listener listener)
+            throws IOException, InterruptedException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "r")) {
+            MappedByteBuffer segment = file.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (segment.remaining() < FlightRecorder.SEGMENT_HEADER) {
+                throw new IOException("Truncated segment " + segmentFile);
+            }
+            for (byte b : FlightRecorder.MAGIC) {
+                if (segment.get() != b) throw new IOException("Not a flight segment: " + segmentFile);
+            }
+            long startedAtMs = segment.getLong();
+
+            ByteBuffer view = segment.asReadOnlyBuffer();
+            long firstTs = 0;
+            long replayStart = System.nanoTime();
+            boolean first = true;
+
+            while (segment.remaining() >= 4) {
+                int recordLength = segment.getInt();
+                if (recordLength <= 0) break;  // end of data
+                if (recordLength < FlightRecorder.RECORD_HEADER
+                        || segment.remaining() < recordLength - 4) {
+                    throw new IOException("Corrupt record in " + segmentFile);
+                }
+                long ts = segment.getLong();
+                int direction = segment.get() & 0xFF;
+                int channel = segment.get() & 0xFF;
+                int type = segment.get() & 0xFF;
+                int payloadStart = segment.position();
+                int payloadEnd = payloadStart + recordLength - FlightRecorder.RECORD_HEADER;
+
+                if (first) {
+                    firstTs = ts;
+                    first = false;
+                } else if (speed > 0) {
+                    long due = replayStart + (long) ((ts - firstTs) / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                }
+
+                view.limit(payloadEnd).position(payloadStart);
+                listener.onRecord(ts, direction, channel, type, view);
+                segment.position(payloadEnd);
+            }
+            return startedAtMs;
+        }
+    }
+}
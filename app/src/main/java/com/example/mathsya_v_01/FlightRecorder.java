@@ -0,0 +1,288 @@
+package com.example.mathsya_v_01;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only recorder for every frame the app sends and receives.
+ *
+ * Network threads never touch the disk. They copy the frame into a slot of a
+ * bounded lock-free ring and return at once; if the ring is full the frame is
+ * dropped and counted. A background appender drains the ring into
+ * memory-mapped segment files that roll over once they reach their size limit.
+ *
+ * Segment layout (big-endian):
+ * <pre>
+ *   header:  8 bytes magic "AUVREC01", 8 bytes wall-clock start (ms)
+ *   record:  i32 record length (header + payload, 0 = end of data)
+ *            i64 monotonic timestamp (System.nanoTime)
+ *            u8 direction, u8 channel, u8 frame type
+ *            payload
+ * </pre>
+ * Read segments back with {@link FlightLogReader}.
+ */
+public final class FlightRecorder {
+
+    public static final int DIR_OUTBOUND = 0;
+    public static final int DIR_INBOUND = 1;
+
+    public static final int CHANNEL_TCP = 0;
+    public static final int CHANNEL_WEBSOCKET = 1;
+    public static final int CHANNEL_UDP = 2;
+
+    static final byte[] MAGIC = {'A', 'U', 'V', 'R', 'E', 'C', '0', '1'};
+    static final int SEGMENT_HEADER = 16;
+    static final int RECORD_HEADER = 4 + 8 + 3;
+    static final String SEGMENT_SUFFIX = ".rec";
+
+    private static final long IDLE_PARK_NANOS = 2_000_000L;
+
+    // ---- ring (Vyukov bounded MPSC) ----
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final byte[][] data;
+    private final ByteBuffer[] dataViews;
+    private final int[] lengths;
+    private final long[] times;
+    private final byte[] meta;          // direction, channel, type per slot
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0;              // appender-owned
+
+    private final ThreadLocal<CharsetEncoder> encoders =
+            ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+
+    // ---- segments (appender-owned) ----
+    private final File dir;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long recorded = 0;
+    private volatile boolean running = false;
+    private Thread appender;
+
+    /**
+     * @param dir          directory for segment files
+     * @param segmentBytes size at which a segment rolls over
+     * @param maxSegments  oldest segments beyond this count are deleted
+     * @param slots        ring capacity, rounded up to a power of two
+     * @param maxPayload   larger frames are dropped
+     */
+    public FlightRecorder(File dir, long segmentBytes, int maxSegments, int slots, int maxPayload) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+
+        int capacity = Integer.highestOneBit(Math.max(2, slots) - 1) << 1;
+        mask = capacity - 1;
+        sequence = new AtomicLongArray(capacity);
+        data = new byte[capacity][maxPayload];
+        dataViews = new ByteBuffer[capacity];
+        lengths = new int[capacity];
+        times = new long[capacity];
+        meta = new byte[capacity * 3];
+        for (int i = 0; i < capacity; i++) {
+            sequence.set(i, i);
+            dataViews[i] = ByteBuffer.wrap(data[i]);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        appender = new Thread(this::appendLoop, "FlightRecorder");
+        appender.setPriority(Thread.MIN_PRIORITY);
+        appender.start();
+    }
+
+    /** Stop the appender after it has drained what is already queued. */
+    public synchronized void stop() {
+        running = false;
+        if (appender != null) {
+            LockSupport.unpark(appender);
+            try {
+                appender.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            appender = null;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // PRODUCERS (any thread, never blocks)
+    // ---------------------------------------------------------
+
+    /** Record the bytes between payload's position and limit; payload is not moved. */
+    public boolean record(int direction, int channel, int type, ByteBuffer payload) {
+        int len = payload.remaining();
+        if (!running || len > data[0].length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        long t = claim();
+        if (t < 0) return false;
+        int idx = (int) (t & mask);
+        int pos = payload.position();
+        payload.get(data[idx], 0, len);
+        payload.position(pos);
+        publish(t, idx, direction, channel, type, len);
+        return true;
+    }
+
+    /** Record a text message as UTF-8. */
+    public boolean record(int direction, int channel, String text) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        long t = claim();
+        if (t < 0) return false;
+        int idx = (int) (t & mask);
+        ByteBuffer out = dataViews[idx];
+        out.clear();
+        CharsetEncoder enc = encoders.get().reset();
+        if (enc.encode(CharBuffer.wrap(text), out, true).isOverflow()) {
+            // too long: keep the slot moving but mark it empty so the appender skips it
+            dropped.incrementAndGet();
+            publish(t, idx, direction, channel, FrameReader.TYPE_TEXT, -1);
+            return false;
+        }
+        publish(t, idx, direction, channel, FrameReader.TYPE_TEXT, out.position());
+        return true;
+    }
+
+    private long claim() {
+        while (true) {
+            long t = tail.get();
+            long diff = sequence.get((int) (t & mask)) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) return t;
+            } else if (diff < 0) {
+                dropped.incrementAndGet();  // ring full
+                return -1;
+            }
+        }
+    }
+
+    private void publish(long t, int idx, int direction, int channel, int type, int len) {
+        lengths[idx] = len;
+        times[idx] = System.nanoTime();
+        meta[idx * 3] = (byte) direction;
+        meta[idx * 3 + 1] = (byte) channel;
+        meta[idx * 3 + 2] = (byte) type;
+        sequence.lazySet(idx, t + 1);
+    }
+
+    // ---------------------------------------------------------
+    // APPENDER
+    // ---------------------------------------------------------
+    private void appendLoop() {
+        try {
+            while (running || pending()) {
+                if (!drain()) LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        } catch (IOException e) {
+            running = false;
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private boolean pending() {
+        int idx = (int) (head & mask);
+        return sequence.get(idx) == head + 1;
+    }
+
+    private boolean drain() throws IOException {
+        boolean any = false;
+        while (pending()) {
+            int idx = (int) (head & mask);
+            int len = lengths[idx];
+            if (len >= 0) {
+                write(idx, len);
+                recorded++;
+            }
+            sequence.lazySet(idx, head + mask + 1);
+            head++;
+            any = true;
+        }
+        return any;
+    }
+
+    private void write(int idx, int len) throws IOException {
+        int recordLength = RECORD_HEADER + len;
+        if (segment == null || segment.remaining() < recordLength + 4) rollSegment();
+        segment.putInt(recordLength);
+        segment.putLong(times[idx]);
+        segment.put(meta, idx * 3, 3);
+        segment.put(data[idx], 0, len);
+    }
+
+    private void rollSegment() throws IOException {
+        closeSegment();
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        pruneSegments();
+
+        long now = System.currentTimeMillis();
+        File file = new File(dir, "flight-" + now + SEGMENT_SUFFIX);
+        segmentFile = new RandomAccessFile(file, "rw");
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.put(MAGIC);
+        segment.putLong(now);
+    }
+
+    private void closeSegment() {
+        if (segment != null) {
+            if (segment.remaining() >= 4) segment.putInt(0);
+            segment.force();
+            segment = null;
+        }
+        if (segmentFile != null) {
+            try {
+                segmentFile.close();
+            } catch (IOException ignored) {}
+            segmentFile = null;
+        }
+    }
+
+    private void pruneSegments() {
+        File[] files = listSegments(dir);
+        for (int i = 0; i <= files.length - maxSegments; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+        }
+    }
+
+    /** Segment files in dir, oldest first. */
+    public static File[] listSegments(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        return files;
+    }
+
+    // ---------------------------------------------------------
+    // METRICS
+    // ---------------------------------------------------------
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public long recordedCount() {
+        return recorded;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.mathsya_v_01;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Collects inbound messages from network threads and hands them to the main
+ * thread once per display frame, as one batch.
+ *
+ * Producers push onto a lock-free stack and, if no frame is pending yet, ask
+ * Choreographer for one. The frame callback takes the whole stack in one swap
+ * and delivers it oldest first. So the main thread sees at most one callback
+ * per vsync, however fast messages arrive.
+ *
+ * With a topic function, only the newest message of each topic is delivered
+ * in a frame; older ones count as superseded. In either mode at most
+ * maxPerFrame messages are delivered per frame. The oldest ones over that cap
+ * are dropped and counted. If frames stop (app in background), producers
+ * trim the staged messages themselves to the newest maxPerFrame (with a
+ * topic function, the newest of each topic), so staging stays bounded and
+ * the next frame still gets the latest values.
+ */
+public final class FrameCoalescer<T> implements Choreographer.FrameCallback {
+
+    public interface BatchCallback<T> {
+        /**
+         * Main thread. batch is oldest first and is reused after the call.
+         *
+         * @param dropped messages lost since the last batch to the cap or to
+         *                staging overflow
+         */
+        void onBatch(List<T> batch, int dropped);
+    }
+
+    // Producers flush the stack themselves past this many frames' worth
+    private static final int STAGING_FRAMES = 4;
+
+    private static final class Node<T> {
+        final T value;
+        final Node<T> next;
+        final int depth;
+
+        Node(T value, Node<T> next) {
+            this.value = value;
+            this.next = next;
+            this.depth = next == null ? 1 : next.depth + 1;
+        }
+    }
+
+    private final AtomicReference<Node<T>> staged = new AtomicReference<>();
+    private final FrameScheduler scheduler = new FrameScheduler(this);
+
+    private final int maxPerFrame;
+    private final Function<? super T, ?> topicOf;
+    private final BatchCallback<T> callback;
+
+    // main thread only, reused every frame
+    private final ArrayList<T> batch = new ArrayList<>();
+    private final HashSet<Object> seenTopics = new HashSet<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger droppedUnreported = new AtomicInteger();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * @param maxPerFrame most messages delivered in one frame
+     * @param topicOf     null to deliver every message, or a key function to
+     *                    deliver only the latest message per key
+     */
+    public FrameCoalescer(int maxPerFrame, Function<? super T, ?> topicOf, BatchCallback<T> callback) {
+        this.maxPerFrame = Math.max(1, maxPerFrame);
+        this.topicOf = topicOf;
+        this.callback = callback;
+    }
+
+    // ---------------------------------------------------------
+    // PRODUCERS (any thread)
+    // ---------------------------------------------------------
+    public void offer(T message) {
+        while (true) {
+            Node<T> head = staged.get();
+            if (head != null && head.depth >= maxPerFrame * STAGING_FRAMES) {
+                trim(head);  // nobody is draining
+                continue;
+            }
+            if (staged.compareAndSet(head, new Node<>(message, head))) break;
+        }
+        scheduler.request();
+    }
+
+    // Replace the stack with its newest maxPerFrame messages (newest per topic).
+    // Rare, so allocating here is fine; if another thread changed the stack
+    // meanwhile, nothing happens and the caller looks again.
+    private void trim(Node<T> head) {
+        ArrayList<T> kept = new ArrayList<>(maxPerFrame);
+        HashSet<Object> topics = topicOf != null ? new HashSet<>() : null;
+        int replaced = 0;
+        for (Node<T> n = head; n != null && kept.size() < maxPerFrame; n = n.next) {
+            if (topics != null && !topics.add(topicOf.apply(n.value))) replaced++;
+            else kept.add(n.value);
+        }
+        Node<T> trimmed = null;
+        for (int i = kept.size() - 1; i >= 0; i--) trimmed = new Node<>(kept.get(i), trimmed);
+        if (!staged.compareAndSet(head, trimmed)) return;
+        int lost = head.depth - kept.size() - replaced;
+        dropped.addAndGet(lost);
+        droppedUnreported.addAndGet(lost);
+        superseded.addAndGet(replaced);
+    }
+
+    // ---------------------------------------------------------
+    // MAIN THREAD
+    // ---------------------------------------------------------
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // first: anything offered from here on asks for the next frame
+        scheduler.frameStarted();
+        Node<T> head = staged.getAndSet(null);
+        if (head == null) return;
+        frames.incrementAndGet();
+
+        // the stack is newest first; collect up to the cap, then reverse
+        int lost = droppedUnreported.getAndSet(0);
+        int capped = 0;
+        for (Node<T> n = head; n != null; n = n.next) {
+            if (topicOf != null && !seenTopics.add(topicOf.apply(n.value))) {
+                superseded.incrementAndGet();
+            } else if (batch.size() < maxPerFrame) {
+                batch.add(n.value);
+            } else {
+                capped++;
+            }
+        }
+        seenTopics.clear();
+        if (capped > 0) dropped.addAndGet(capped);
+        lost += capped;
+        reverse(batch);
+
+        try {
+            callback.onBatch(batch, lost);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private static <T> void reverse(ArrayList<T> list) {
+        for (int i = 0, j = list.size() - 1; i < j; i++, j--) {
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    // ---------------------------------------------------------
+    // METRICS
+    // ---------------------------------------------------------
+
+    /** Messages lost to the per-frame cap or to staging overflow. */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    /** Messages replaced by a newer one of the same topic within a frame. */
+    public long supersededCount() {
+        return superseded.get();
+    }
+
+    /** Frames in which a batch was delivered. */
+    public long batchCount() {
+        return frames.get();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.mathsya_v_01;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits an inbound byte stream into frames without copying them.
+ *
+ * Two wire modes are supported:
+ * <ul>
+ *   <li>{@link Mode#LINES}: newline-delimited text (the original JSON protocol).
+ *   Every line is reported as a {@link #TYPE_TEXT} frame without the '\n'.</li>
+ *   <li>{@link Mode#FRAMED}: {@code varint length | u8 type | payload}, where
+ *   length counts the type byte plus the payload (unsigned LEB128).</li>
+ * </ul>
+ *
+ * Bytes are read straight into one direct buffer. Each frame is handed out as
+ * a read-only view of that buffer, which is only valid during the callback.
+ */
+public final class FrameReader {
+
+    public enum Mode { LINES, FRAMED }
+
+    public interface Listener {
+        void onFrame(int type, ByteBuffer payload);
+    }
+
+    // Frame types. 0x01-0x3F are reserved for the app protocol.
+    /** Untyped binary message from a transport without frame types (WebSocket). */
+    public static final int TYPE_BINARY = 0x00;
+    public static final int TYPE_TEXT = 0x01;
+    public static final int TYPE_CONTROL = 0x02;
+    /** Vehicle echo of an applied control frame; payload is its i32 sequence. */
+    public static final int TYPE_ACK = 0x03;
+    /** Compact telemetry frame, see {@link TelemetryDeltaCodec}. */
+    public static final int TYPE_TELEMETRY = 0x04;
+
+    private final Mode mode;
+    private final ByteBuffer buffer;
+    private final ByteBuffer view;
+
+    private static final ThreadLocal<byte[]> DECODE_SCRATCH =
+            ThreadLocal.withInitial(() -> new byte[4096]);
+
+    public FrameReader(Mode mode, ByteBuffer buffer) {
+        this.mode = mode;
+        this.buffer = buffer;
+        this.view = buffer.asReadOnlyBuffer();
+        buffer.clear();
+    }
+
+    /**
+     * Read from the channel until it reaches end of stream or throws,
+     * reporting every complete frame to the listener on the calling thread.
+     */
+    public void readLoop(ReadableByteChannel channel, Listener listener) throws IOException {
+        while (true) {
+            if (read(channel, listener) < 0) throw new EOFException("Stream closed");
+        }
+    }
+
+    /**
+     * One read from the channel, then report every frame that is now complete.
+     * Also works on non-blocking channels.
+     *
+     * @return bytes read, or -1 at end of stream
+     */
+    public int read(ReadableByteChannel channel, Listener listener) throws IOException {
+        int n = channel.read(buffer);
+        buffer.flip();
+        if (mode == Mode.FRAMED) drainFrames(listener);
+        else drainLines(listener);
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Frame larger than receive buffer (" + buffer.capacity() + " bytes)");
+        }
+        return n;
+    }
+
+    private void drainLines(Listener listener) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) != '\n') continue;
+            int lineEnd = (i > start && buffer.get(i - 1) == '\r') ? i - 1 : i;
+            deliver(listener, TYPE_TEXT, start, lineEnd);
+            start = i + 1;
+        }
+        buffer.position(start);
+    }
+
+    private void drainFrames(Listener listener) throws IOException {
+        while (true) {
+            int p = buffer.position();
+            int end = buffer.limit();
+
+            // unsigned LEB128 length prefix
+            int length = 0;
+            int shift = 0;
+            int q = p;
+            boolean complete = false;
+            while (q < end) {
+                int b = buffer.get(q++);
+                length |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    complete = true;
+                    break;
+                }
+                shift += 7;
+                if (shift > 28) throw new IOException("Malformed frame length");
+            }
+            if (!complete) return;
+            if (length < 1) throw new IOException("Empty frame");
+            if (end - q < length) return;
+
+            int type = buffer.get(q) & 0xFF;
+            deliver(listener, type, q + 1, q + length);
+            buffer.position(q + length);
+        }
+    }
+
+    private void deliver(Listener listener, int type, int from, int to) {
+        view.limit(to).position(from);
+        listener.onFrame(type, view);
+    }
+
+    /**
+     * Decode a text payload as UTF-8. Only call this when a String is really
+     * needed; the frame itself never allocates one.
+     */
+    public static String decodeText(ByteBuffer payload) {
+        int len = payload.remaining();
+        byte[] scratch = DECODE_SCRATCH.get();
+        if (scratch.length < len) {
+            scratch = new byte[Math.max(len, scratch.length * 2)];
+            DECODE_SCRATCH.set(scratch);
+        }
+        int pos = payload.position();
+        payload.get(scratch, 0, len);
+        payload.position(pos);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /** Write an unsigned LEB128 varint. */
+    public static void putVarint(ByteBuffer dst, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        dst.put((byte) value);
+    }
+}
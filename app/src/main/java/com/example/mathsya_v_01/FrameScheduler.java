@@ -0,0 +1,48 @@
+package com.example.mathsya_v_01;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Asks Choreographer to run a frame callback in the next frame, from any
+ * thread, at most once until that frame starts. Further requests before then
+ * are a single failed compare-and-set.
+ *
+ * Used by {@link FrameCoalescer} and {@link RenderLoop}; the callback calls
+ * {@link #frameStarted} first thing in doFrame.
+ */
+final class FrameScheduler {
+
+    private final Choreographer.FrameCallback callback;
+    private final AtomicBoolean requested = new AtomicBoolean(false);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable postFromMain = this::postFromMain;
+    // fetched on main; postFrameCallback itself may be called from any thread
+    private volatile Choreographer choreographer;
+
+    FrameScheduler(Choreographer.FrameCallback callback) {
+        this.callback = callback;
+    }
+
+    /** Any thread: run the callback in the next frame. */
+    void request() {
+        if (!requested.compareAndSet(false, true)) return;
+        Choreographer c = choreographer;
+        if (c != null) c.postFrameCallback(callback);
+        else mainHandler.post(postFromMain);
+    }
+
+    /** Main thread, start of doFrame: a request from here on asks for the next frame. */
+    void frameStarted() {
+        requested.set(false);
+    }
+
+    // Choreographer is per looper; fetch it on the main thread
+    private void postFromMain() {
+        if (choreographer == null) choreographer = Choreographer.getInstance();
+        choreographer.postFrameCallback(callback);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.mathsya_v_01;
+
+import android.annotation.SuppressLint;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Turns touches on the joystick base into stick positions and moves the
+ * handle to match.
+ *
+ * The base's centre and radius and the handle's resting offset are worked
+ * out when either view is laid out, not per event. Touches are read in the
+ * base's own coordinates, so no screen position is looked up. Every batched
+ * historical sample of a move goes through the {@link StickFilter} with its
+ * own timestamp, and the listener hears the result once per event.
+ *
+ * The handle is only moved through its translation, a RenderNode property:
+ * its drawing is never recorded again, and it is only touched when it moves
+ * by half a pixel or more. Nothing is allocated per event.
+ *
+ * Main thread only.
+ */
+public final class JoystickController implements View.OnTouchListener, View.OnLayoutChangeListener {
+
+    public interface Listener {
+        /** Shaped position in the unit disc, x right and y down. */
+        void onStick(double x, double y);
+
+        /** The finger was lifted; the stick is back at the centre. */
+        void onRelease();
+    }
+
+    private static final long RECENTER_MS = 100;
+    private static final float MIN_HANDLE_STEP_PX = 0.5f;
+
+    private final View base;
+    private final View handle;
+    private final StickFilter filter;
+    private final Listener listener;
+
+    // Geometry, refreshed on layout. The centre is in the base's coordinates;
+    // rest is the handle translation that centres it on the base.
+    private float centerX, centerY, radius;
+    private float restX, restY;
+    private float shownX, shownY;
+
+    @SuppressLint("ClickableViewAccessibility")
+    public JoystickController(View base, View handle, StickFilter filter, Listener listener) {
+        this.base = base;
+        this.handle = handle;
+        this.filter = filter;
+        this.listener = listener;
+        base.addOnLayoutChangeListener(this);
+        handle.addOnLayoutChangeListener(this);
+        // touches on the handle fall through to the base under it
+        base.setOnTouchListener(this);
+        measure();
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                               int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        measure();
+        moveHandle(restX, restY);
+    }
+
+    private void measure() {
+        centerX = base.getWidth() / 2f;
+        centerY = base.getHeight() / 2f;
+        radius = Math.max(1f, base.getWidth() / 2f);
+        // layout positions leave out translation, so this holds while the handle is moved
+        restX = base.getLeft() + centerX - (handle.getLeft() + handle.getWidth() / 2f);
+        restY = base.getTop() + centerY - (handle.getTop() + handle.getHeight() / 2f);
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                handle.animate().cancel();
+                shownX = shownY = Float.NaN;  // wherever the cancelled spring left it, redraw
+                filter.reset();
+                feed(event.getX(), event.getY(), event.getEventTime());
+                publish();
+                return true;
+
+            case MotionEvent.ACTION_MOVE:
+                // oldest first: the samples the system batched since the last event
+                for (int i = 0, n = event.getHistorySize(); i < n; i++) {
+                    feed(event.getHistoricalX(i), event.getHistoricalY(i), event.getHistoricalEventTime(i));
+                }
+                feed(event.getX(), event.getY(), event.getEventTime());
+                publish();
+                return true;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                recenter();
+                listener.onRelease();
+                return true;
+
+            default:
+                return true;
+        }
+    }
+
+    private void feed(float x, float y, long timeMs) {
+        filter.update((x - centerX) / radius, (y - centerY) / radius, timeMs);
+    }
+
+    private void publish() {
+        moveHandle(restX + (float) filter.filteredX() * radius, restY + (float) filter.filteredY() * radius);
+        listener.onStick(filter.x(), filter.y());
+    }
+
+    private void moveHandle(float tx, float ty) {
+        if (Math.abs(tx - shownX) < MIN_HANDLE_STEP_PX && Math.abs(ty - shownY) < MIN_HANDLE_STEP_PX) return;
+        shownX = tx;
+        shownY = ty;
+        handle.setTranslationX(tx);
+        handle.setTranslationY(ty);
+    }
+
+    /** Spring the handle back to the centre and forget the filter's history. */
+    public void recenter() {
+        filter.reset();
+        shownX = restX;
+        shownY = restY;
+        handle.animate().translationX(restX).translationY(restY).setDuration(RECENTER_MS).start();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.mathsya_v_01;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory latency histogram with HDR-style log-linear buckets.
+ *
+ * Values are microseconds. Each power of two is split into 32 linear
+ * sub-buckets, so any recorded value is reported within about 3% of itself,
+ * from 1 us up to {@link #MAX_TRACKABLE_MICROS} (larger values are clamped).
+ * That is 704 counters, allocated once.
+ *
+ * {@link #record} is lock-free and may be called from any thread. Readers
+ * scan the counters without stopping writers, so a percentile taken during
+ * recording can miss the very latest samples; it is never corrupted.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;         // 32
+    public static final long MAX_TRACKABLE_MICROS = (1L << 26) - 1;  // about 67 s
+    private static final int BUCKETS = indexOf(MAX_TRACKABLE_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long v = Math.max(0, Math.min(micros, MAX_TRACKABLE_MICROS));
+        counts.incrementAndGet(indexOf(v));
+        total.incrementAndGet();
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    /** Largest recorded value, exact (not bucketed). */
+    public long maxMicros() {
+        return max.get();
+    }
+
+    /**
+     * Value at or below which the given percentage of samples fall, reported
+     * as the top of its bucket. 0 if nothing has been recorded.
+     */
+    public long percentileMicros(double percentile) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(highestValueAt(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Forget all samples, e.g. when a new connection starts. */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    // ---------------------------------------------------------
+    // BUCKETS: values below 64 map 1:1, above that 32 per power of two
+    // ---------------------------------------------------------
+    static int indexOf(long v) {
+        if (v < 2 * SUB_COUNT) return (int) v;
+        int shift = (63 - Long.numberOfLeadingZeros(v)) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((v >>> shift) - SUB_COUNT);
+    }
+
+    static long highestValueAt(int index) {
+        if (index < 2 * SUB_COUNT) return index;
+        int shift = index / SUB_COUNT - 1;
+        long sub = index % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
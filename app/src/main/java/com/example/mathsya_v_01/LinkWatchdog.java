@@ -0,0 +1,159 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App-level heartbeat and dead-link detection for one connection.
+ *
+ * Every interval the watchdog checks when the peer was last heard from. Any
+ * inbound message counts ({@link #heard}), so a link busy with acks and
+ * telemetry never needs a ping. Once the link has been quiet for a whole
+ * interval a {@code {"ping":n}} goes out; the vehicle answers with
+ * {@code {"pong":n}}. After missedBeats intervals of silence the link is
+ * declared dead. That is a few hundred milliseconds with the defaults,
+ * instead of whenever TCP gives up on a half-open socket.
+ *
+ * Firmware that predates the heartbeat never answers a ping, and a quiet but
+ * healthy vehicle would be dropped every few hundred milliseconds. So each
+ * session starts on a fallback deadline of seconds and switches to the fast
+ * one only once the peer is known to answer: on its first pong, or when
+ * {@link #confirm} is called because its hello reply advertised heartbeats.
+ *
+ * All watchdogs share one daemon thread. {@link #heard} is a single
+ * volatile write and is safe to call for every inbound frame.
+ */
+public final class LinkWatchdog {
+
+    public interface Heartbeat {
+        /** Watchdog thread. Send {"ping":n} on the link. */
+        void sendPing(int n);
+    }
+
+    public interface Listener {
+        /** Watchdog thread. Called once per {@link #start}. */
+        void onLinkDead(long silentMs);
+    }
+
+    public static final long DEFAULT_INTERVAL_MS = 100;
+    public static final int DEFAULT_MISSED_BEATS = 3;
+    // Until the peer is known to answer pings
+    public static final long FALLBACK_INTERVAL_MS = 1000;
+    public static final int FALLBACK_MISSED_BEATS = 5;
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "LinkWatchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final byte[] PONG_PREFIX = {'{', '"', 'p', 'o', 'n', 'g', '"'};
+
+    private final Heartbeat heartbeat;
+    private final Listener listener;
+    private volatile long intervalMs = DEFAULT_INTERVAL_MS;
+    private volatile int missedBeats = DEFAULT_MISSED_BEATS;
+
+    private volatile long lastHeardNanos;
+    private volatile boolean confirmed;  // the peer answers pings: use the fast deadline
+    private ScheduledFuture<?> ticker;  // guarded by this
+    private int generation = 0;         // guarded by this; ticks of an older start are void
+    private int pings = 0;              // watchdog thread only
+
+    public LinkWatchdog(Heartbeat heartbeat, Listener listener) {
+        this.heartbeat = heartbeat;
+        this.listener = listener;
+    }
+
+    /** The fast deadline; takes effect on the next {@link #start} or {@link #confirm}. */
+    public void setInterval(long intervalMs, int missedBeats) {
+        this.intervalMs = Math.max(10, intervalMs);
+        this.missedBeats = Math.max(1, missedBeats);
+    }
+
+    /**
+     * Start watching a new session on the fallback deadline; the peer counts
+     * as just heard and as not yet answering pings.
+     */
+    public synchronized void start() {
+        stop();
+        lastHeardNanos = System.nanoTime();
+        confirmed = false;
+        schedule(FALLBACK_INTERVAL_MS);
+    }
+
+    /**
+     * The peer answers pings: switch this session to the fast deadline. Called
+     * for every pong and when a hello reply advertises heartbeats; only the
+     * first call of a session does anything.
+     */
+    public void confirm() {
+        if (confirmed) return;
+        synchronized (this) {
+            if (confirmed || ticker == null) return;
+            ticker.cancel(false);
+            generation++;
+            confirmed = true;
+            lastHeardNanos = System.nanoTime();
+            schedule(intervalMs);
+        }
+    }
+
+    // Guarded by this
+    private void schedule(long period) {
+        int gen = generation;
+        ticker = timer.scheduleAtFixedRate(() -> tick(gen), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticker != null) ticker.cancel(false);
+        ticker = null;
+        generation++;
+    }
+
+    /** Something arrived from the peer. */
+    public void heard() {
+        lastHeardNanos = System.nanoTime();
+    }
+
+    private void tick(int gen) {
+        boolean fast = confirmed;
+        long period = fast ? intervalMs : FALLBACK_INTERVAL_MS;
+        int beats = fast ? missedBeats : FALLBACK_MISSED_BEATS;
+        long silentMs = (System.nanoTime() - lastHeardNanos) / 1_000_000;
+        if (silentMs >= period * beats) {
+            synchronized (this) {
+                if (gen != generation) return;  // stopped or restarted meanwhile
+                stop();
+            }
+            listener.onLinkDead(silentMs);
+        } else if (silentMs >= period) {
+            heartbeat.sendPing(++pings);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // WIRE
+    // ---------------------------------------------------------
+
+    public static String ping(int n) {
+        return "{\"ping\":" + n + "}";
+    }
+
+    /** True for a {"pong":n} reply, which is only liveness and goes no further. */
+    public static boolean isPong(ByteBuffer payload) {
+        int p = payload.position();
+        if (payload.remaining() < PONG_PREFIX.length) return false;
+        for (int i = 0; i < PONG_PREFIX.length; i++) {
+            if (payload.get(p + i) != PONG_PREFIX[i]) return false;
+        }
+        return true;
+    }
+
+    public static boolean isPong(String message) {
+        return message.startsWith("{\"pong\"");
+    }
+}
@@ -50,6 +50,8 @@ public class LoadingActivity extends AppCompatActivity {
 
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private final List<String> wifiList = new ArrayList<>();
+    // Set once the dashboard has been started; it owns the network from then on
+    private boolean handedOver = false;
 
     private void executeAfterDelay(Runnable action, long delayMillis) {
         mainHandler.postDelayed(action, delayMillis);
@@ -65,6 +67,7 @@ public class LoadingActivity extends AppCompatActivity {
                 for (ScanResult scanResult : results) {
                     wifiList.add(scanResult.SSID + " - " + scanResult.level + "dBm");
                 }
+                wifiList.forEach(LoadingActivity.this::logSetter);
                 try {
                     unregisterReceiver(this);
                 } catch (IllegalArgumentException e) {
@@ -78,8 +81,6 @@ public class LoadingActivity extends AppCompatActivity {
 
         Toast.makeText(this, "Scanning...", Toast.LENGTH_SHORT).show();
         logSetter("Scanning for Wi-Fi networks...");
-
-        executeAfterDelay(() -> wifiList.forEach(this::logSetter), 3000);
     }
 
     @Override
@@ -87,6 +88,7 @@ public class LoadingActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_loading);
         Log.d(TAG, "onCreate: Activity starting.");
+        StartupPipeline.begin();
 
         connectivityManager = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
         wifiManager = (WifiManager) getSystemService(Context.WIFI_SERVICE);
@@ -102,29 +104,29 @@ public class LoadingActivity extends AppCompatActivity {
 
         logSetter("Initializing Connection...");
 
-        executeAfterDelay(() -> {
-            scanWifi();
-            Toast.makeText(this, "Connecting to Mathsya!", Toast.LENGTH_SHORT).show();
-            logSetter("Establishing connection to Mathsya!");
-
-            if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
-                    != PackageManager.PERMISSION_GRANTED) {
-                ActivityCompat.requestPermissions(
-                        this,
-                        new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
-                        REQUEST_LOCATION_PERMISSION
-                );
-            } else {
-                if (!wifiManager.isWifiEnabled()) {
-                    logSetter("Wi-Fi is off. Opening settings...");
-                    Toast.makeText(this, "Please enable Wi-Fi manually.", Toast.LENGTH_LONG).show();
-                    startActivity(new Intent(Settings.ACTION_WIFI_SETTINGS));
-                    executeAfterDelay(this::finishAffinity, 8000);
+        // Each step starts as soon as the previous one is done; the scan
+        // results are only logged, so the connection does not wait for them
+        scanWifi();
+        Toast.makeText(this, "Connecting to Mathsya!", Toast.LENGTH_SHORT).show();
+        logSetter("Establishing connection to Mathsya!");
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(
+                    this,
+                    new String[]{Manifest.permission.ACCESS_FINE_LOCATION},
+                    REQUEST_LOCATION_PERMISSION
+            );
+        } else {
+            if (!wifiManager.isWifiEnabled()) {
+                logSetter("Wi-Fi is off. Opening settings...");
+                Toast.makeText(this, "Please enable Wi-Fi manually.", Toast.LENGTH_LONG).show();
+                startActivity(new Intent(Settings.ACTION_WIFI_SETTINGS));
+                executeAfterDelay(this::finishAffinity, 8000);
 
-                }
-                executeAfterDelay(this::tryConnectToWifi, 2000);
             }
-        }, 2000);
+            tryConnectToWifi();
+        }
     }
 
     private void tryConnectToWifi() {
@@ -156,16 +158,18 @@ public class LoadingActivity extends AppCompatActivity {
             public void onAvailable(@NonNull Network network) {
                 super.onAvailable(network);
                 boolean bound = connectivityManager.bindProcessToNetwork(network);
+                StartupPipeline.mark(StartupPipeline.Stage.NETWORK_AVAILABLE);
                 logSetter("Connected to " + ssid + " (bound=" + bound + ")");
+                // Open the vehicle socket now; the dashboard picks it up connected
+                StartupPipeline.preconnect(network, DashboardActivity.TARGET_IP, DashboardActivity.TARGET_PORT);
                 mainHandler.post(() -> {
+                    if (handedOver || isFinishing()) return;
                     Toast.makeText(LoadingActivity.this,
                             "Connected to " + WIFI_SSID,
                             Toast.LENGTH_SHORT).show();
-                    executeAfterDelay(()->{
-                        gotoControlLayout();
-                        finish();
-                    },5000);
-
+                    handedOver = true;
+                    gotoControlLayout();
+                    finish();
                 });
             }
 
@@ -188,6 +192,9 @@ public class LoadingActivity extends AppCompatActivity {
 
         try {
             connectivityManager.requestNetwork(request, networkCallback);
+            // The request must outlive this activity, or the Wi-Fi drops with it
+            StartupPipeline.holdNetwork(connectivityManager, networkCallback);
+            StartupPipeline.mark(StartupPipeline.Stage.NETWORK_REQUESTED);
             logSetter("Requesting connection to " + ssid);
         } catch (Exception e) {
             logSetter("Error requesting network: " + e.getMessage());
@@ -198,15 +205,9 @@ public class LoadingActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (networkCallback != null && connectivityManager != null) {
-            try {
-                connectivityManager.unregisterNetworkCallback(networkCallback);
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering callback", e);
-            }
-            connectivityManager.bindProcessToNetwork(null);
-            networkCallback = null;
-        }
+        // Once the dashboard is up it releases the network; otherwise the launch was abandoned
+        if (!handedOver) StartupPipeline.release();
+        networkCallback = null;
         mainHandler.removeCallbacksAndMessages(null);
     }
 
@@ -219,7 +220,7 @@ public class LoadingActivity extends AppCompatActivity {
             if (grantResults.length > 0 &&
                     grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 logSetter("Location permission granted.");
-                executeAfterDelay(this::tryConnectToWifi, 500);
+                tryConnectToWifi();
             } else {
                 logSetter("Location permission denied. Cannot connect to Wi-Fi.");
                 Toast.makeText(this,
@@ -241,6 +242,9 @@ public class LoadingActivity extends AppCompatActivity {
 
     public void gotoControlLayout() {
         Intent intent = new Intent(this, DashboardActivity.class);
+        // pass a fleet list through, e.g. from an adb launch
+        String[] fleet = getIntent().getStringArrayExtra(DashboardActivity.EXTRA_FLEET);
+        if (fleet != null) intent.putExtra(DashboardActivity.EXTRA_FLEET, fleet);
         startActivity(intent);
     }
 }
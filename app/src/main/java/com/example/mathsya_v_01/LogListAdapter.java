@@ -0,0 +1,65 @@
+package com.example.mathsya_v_01;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Shows a {@link LogRing} in a ListView. Rows are recycled and only the rows on
+ * screen are formatted, so a long session log costs nothing until it is viewed.
+ */
+public class LogListAdapter extends BaseAdapter {
+
+    private final LogRing log;
+    private final LayoutInflater inflater;
+
+    // Reused for every bound row
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
+    private final Date date = new Date();
+    private final StringBuilder line = new StringBuilder(128);
+
+    public LogListAdapter(LayoutInflater inflater, LogRing log) {
+        this.inflater = inflater;
+        this.log = log;
+    }
+
+    @Override
+    public int getCount() {
+        return log.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return log.messageAt(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView row = (TextView) (convertView != null
+                ? convertView
+                : inflater.inflate(R.layout.item_log_row, parent, false));
+
+        LogRing.Level level = log.levelAt(position);
+        date.setTime(log.timestampAt(position));
+
+        line.setLength(0);
+        line.append('[').append(timeFormat.format(date)).append("] ")
+                .append(level.name()).append(": ")
+                .append(log.messageAt(position));
+
+        row.setText(line);
+        row.setTextColor(level.color);
+        return row;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.mathsya_v_01;
+
+/**
+ * Fixed-capacity ring of structured log entries for the session log.
+ *
+ * Appends are O(1) regardless of how long the session runs; once full, the
+ * oldest entry is overwritten. Entries are kept as a primitive timestamp, a
+ * level and the message, and are only formatted when a row is displayed.
+ */
+public final class LogRing {
+
+    public enum Level {
+        INFO(0xFFC8E6C9),   // light green
+        RECV(0xFFB3E5FC),   // light blue
+        ERROR(0xFFFF4D4D);
+
+        public final int color;
+
+        Level(int color) {
+            this.color = color;
+        }
+    }
+
+    private final long[] timestamps;
+    private final Level[] levels;
+    private final String[] messages;
+
+    private int next = 0;   // slot the next append goes to
+    private int size = 0;
+    private long appended = 0;
+
+    public LogRing(int capacity) {
+        timestamps = new long[capacity];
+        levels = new Level[capacity];
+        messages = new String[capacity];
+    }
+
+    public synchronized void append(long timestampMs, Level level, String message) {
+        timestamps[next] = timestampMs;
+        levels[next] = level;
+        messages[next] = message;
+        next = (next + 1) % messages.length;
+        if (size < messages.length) size++;
+        appended++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Total number of entries ever appended, including overwritten ones. */
+    public synchronized long appendedCount() {
+        return appended;
+    }
+
+    // index 0 is the oldest retained entry
+    private int slot(int index) {
+        return (next - size + index + messages.length) % messages.length;
+    }
+
+    public synchronized long timestampAt(int index) {
+        return timestamps[slot(index)];
+    }
+
+    public synchronized Level levelAt(int index) {
+        return levels[slot(index)];
+    }
+
+    public synchronized String messageAt(int index) {
+        return messages[slot(index)];
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.mathsya_v_01;
+
+import android.util.Log;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-downloaded map tiles read from one memory-mapped pack file, with an LRU
+ * cache of recently served tiles.
+ *
+ * Pack layout (big-endian):
+ * <pre>
+ *   "MTPK" | u16 version | u16 tile size | i32 count
+ *   count x { i64 key | i64 offset | i32 length }   sorted by key
+ *   tile images (PNG or JPEG, as Google Maps takes them)
+ * </pre>
+ * key packs zoom, x and y (XYZ scheme, y from the top) into one long. A
+ * lookup is a binary search straight in the mapped index, so opening a pack
+ * reads nothing up front and the OS pages in only what is used.
+ *
+ * Tiles are cached as the encoded bytes a TileProvider hands to the map. The
+ * cache is bounded by total bytes, keyed by zoom/x/y, and evicts the least
+ * recently used tile. {@link #prefetchAround} warms it for the area around
+ * the vehicle on a background thread.
+ *
+ * Thread-safe: the map asks for tiles from several threads at once.
+ */
+public final class OfflineTileStore {
+
+    private static final String TAG = "OfflineTileStore";
+    private static final int MAGIC = 0x4D54504B;  // "MTPK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 20;
+    private static final int MAX_ZOOM = 22;
+
+    private final MappedByteBuffer pack;
+    private final int tileSize;
+    private final int count;
+    private final int minZoom;
+    private final int maxZoom;
+
+    private final long maxCacheBytes;
+    private long cacheBytes;  // guarded by cache
+    private final LinkedHashMap<Long, byte[]> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TileStore-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile long lastPrefetchKey = -1;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Map a pack file. @param maxCacheBytes bound on the bytes held in the LRU cache */
+    public OfflineTileStore(File file, long maxCacheBytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Tile pack over 2 GB: " + file);
+            // the mapping stays valid after the channel is closed
+            pack = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (pack.capacity() < HEADER_BYTES || pack.getInt(0) != MAGIC) {
+            throw new IOException("Not a tile pack: " + file);
+        }
+        if ((pack.getShort(4) & 0xFFFF) != VERSION) throw new IOException("Unknown tile pack version");
+        tileSize = pack.getShort(6) & 0xFFFF;
+        count = pack.getInt(8);
+        if (count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES > pack.capacity()) {
+            throw new IOException("Truncated tile pack: " + file);
+        }
+        // sorted by key, and zoom is the key's top bits
+        minZoom = count == 0 ? 0 : zoomOf(keyAt(0));
+        maxZoom = count == 0 ? -1 : zoomOf(keyAt(count - 1));
+        this.maxCacheBytes = maxCacheBytes;
+        Log.d(TAG, "Opened " + file.getName() + ": " + count + " tiles, zoom " + minZoom + "-" + maxZoom);
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int minZoom() {
+        return minZoom;
+    }
+
+    public int maxZoom() {
+        return maxZoom;
+    }
+
+    // ---------------------------------------------------------
+    // LOOKUP
+    // ---------------------------------------------------------
+
+    /** The encoded tile image, or null if the pack has no such tile. */
+    public byte[] tile(int zoom, int x, int y) {
+        if (zoom < minZoom || zoom > maxZoom) return null;
+        long key = key(zoom, x, y);
+        synchronized (cache) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        byte[] data = load(key);
+        if (data != null) put(key, data);
+        return data;
+    }
+
+    private byte[] load(long key) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = keyAt(mid);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return copy(mid);
+        }
+        return null;
+    }
+
+    private byte[] copy(int entry) {
+        int at = HEADER_BYTES + entry * ENTRY_BYTES;
+        long offset = pack.getLong(at + 8);
+        int length = pack.getInt(at + 16);
+        if (offset < 0 || length < 0 || offset + length > pack.capacity()) return null;
+        byte[] data = new byte[length];
+        // absolute reads on a private view; the shared buffer's position never moves
+        ByteBuffer view = pack.duplicate();
+        view.position((int) offset);
+        view.get(data);
+        return data;
+    }
+
+    private void put(long key, byte[] data) {
+        if (data.length > maxCacheBytes) return;
+        synchronized (cache) {
+            byte[] old = cache.put(key, data);
+            cacheBytes += data.length - (old == null ? 0 : old.length);
+            Iterator<Map.Entry<Long, byte[]>> it = cache.entrySet().iterator();
+            while (cacheBytes > maxCacheBytes && it.hasNext()) {
+                cacheBytes -= it.next().getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    private long keyAt(int entry) {
+        return pack.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+    }
+
+    static long key(int zoom, int x, int y) {
+        return ((long) zoom << 58) | ((long) x << 29) | (y & 0x1FFFFFFFL);
+    }
+
+    private static int zoomOf(long key) {
+        return (int) (key >>> 58);
+    }
+
+    // ---------------------------------------------------------
+    // PREFETCH
+    // ---------------------------------------------------------
+
+    /**
+     * Load the tiles within radius tiles of the position, at the map's zoom
+     * and one level either side, into the cache. Cheap to call on every
+     * position update: it only starts work when the position moved into
+     * another tile at the deepest of those zooms, or the zoom changed.
+     */
+    public void prefetchAround(double lat, double lon, int zoom, int radius) {
+        int from = Math.max(minZoom, zoom - 1);
+        int to = Math.min(maxZoom, zoom + 1);
+        if (from > to || prefetcher.isShutdown()) return;
+        long here = key(to, tileX(lon, to), tileY(lat, to));
+        if (here == lastPrefetchKey) return;
+        lastPrefetchKey = here;
+        prefetcher.execute(() -> {
+            for (int z = to; z >= from; z--) {
+                int cx = tileX(lon, z);
+                int cy = tileY(lat, z);
+                int last = (1 << z) - 1;
+                for (int x = Math.max(0, cx - radius); x <= Math.min(last, cx + radius); x++) {
+                    for (int y = Math.max(0, cy - radius); y <= Math.min(last, cy + radius); y++) {
+                        tile(z, x, y);
+                    }
+                }
+            }
+        });
+    }
+
+    static int tileX(double lon, int zoom) {
+        int n = 1 << zoom;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor((lon + 180) / 360 * n)));
+    }
+
+    static int tileY(double lat, int zoom) {
+        int n = 1 << zoom;
+        double r = Math.toRadians(lat);
+        double y = (1 - Math.log(Math.tan(r) + 1 / Math.cos(r)) / Math.PI) / 2 * n;
+        return Math.max(0, Math.min(n - 1, (int) Math.floor(y)));
+    }
+
+    // ---------------------------------------------------------
+    // METRICS
+    // ---------------------------------------------------------
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long cachedBytes() {
+        synchronized (cache) {
+            return cacheBytes;
+        }
+    }
+
+    /** Stop prefetching. Tiles already cached stay readable. */
+    public void close() {
+        prefetcher.shutdownNow();
+    }
+
+    // ---------------------------------------------------------
+    // WRITING
+    // ---------------------------------------------------------
+
+    /**
+     * Build a pack from a {@code <zoom>/<x>/<y>.png} (or .jpg) directory tree,
+     * as left by most tile downloaders. Runs on any JVM; copy the result to
+     * the phone. Note that MBTiles exports count y from the bottom (TMS) and
+     * need flipping first.
+     */
+    public static void writePack(File tileDir, File out, int tileSize) throws IOException {
+        List<long[]> entries = new ArrayList<>();  // {key, index into files}
+        List<File> files = new ArrayList<>();
+        File[] zooms = tileDir.listFiles(File::isDirectory);
+        if (zooms == null) throw new IOException("Not a directory: " + tileDir);
+        for (File zDir : zooms) {
+            int z = parse(zDir.getName());
+            if (z < 0 || z > MAX_ZOOM) continue;
+            File[] xs = zDir.listFiles(File::isDirectory);
+            if (xs == null) continue;
+            for (File xDir : xs) {
+                int x = parse(xDir.getName());
+                File[] ys = xDir.listFiles(File::isFile);
+                if (x < 0 || ys == null) continue;
+                for (File f : ys) {
+                    String name = f.getName();
+                    int dot = name.lastIndexOf('.');
+                    int y = dot > 0 ? parse(name.substring(0, dot)) : -1;
+                    if (y < 0) continue;
+                    entries.add(new long[]{key(z, x, y), files.size()});
+                    files.add(f);
+                }
+            }
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out)))) {
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            dos.writeShort(tileSize);
+            dos.writeInt(entries.size());
+            long offset = HEADER_BYTES + (long) entries.size() * ENTRY_BYTES;
+            for (long[] e : entries) {
+                long length = files.get((int) e[1]).length();
+                dos.writeLong(e[0]);
+                dos.writeLong(offset);
+                dos.writeInt((int) length);
+                offset += length;
+            }
+            for (long[] e : entries) dos.write(Files.readAllBytes(files.get((int) e[1]).toPath()));
+        }
+    }
+
+    private static int parse(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded ring of outbound frames for a single writer thread.
+ *
+ * Producers copy each frame into a preallocated direct slot, so nothing is
+ * allocated per send. The writer takes every pending slot at once and hands
+ * them to a gathering write ({@link #awaitBatch()} / {@link #release(int, long)}).
+ * When the ring is full the new frame is dropped and counted.
+ *
+ * In framed mode every entry gets the {@link FrameReader} header
+ * ({@code varint length | u8 type}); in line mode text is newline-terminated
+ * and binary frames go out as-is.
+ */
+public final class OutboundFrameRing {
+
+    private final ByteBuffer[] slots;
+    private final ByteBuffer[] batch;
+    private final int slotSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer textScratch;
+    private volatile boolean framed = false;
+
+    // Guarded by lock. Slots [head, head + count) are pending; the writer owns
+    // the first n of them between awaitBatch() and release(n).
+    private int head = 0;
+    private int count = 0;
+    private int taken = 0;
+
+    private volatile long bytesWritten = 0;
+    private volatile long framesDropped = 0;
+
+    public OutboundFrameRing(int capacity, int slotSize) {
+        this.slots = new ByteBuffer[capacity];
+        this.batch = new ByteBuffer[capacity];
+        this.slotSize = slotSize;
+        this.textScratch = ByteBuffer.allocateDirect(slotSize);
+        ByteBuffer arena = ByteBuffer.allocateDirect(capacity * slotSize);
+        for (int i = 0; i < capacity; i++) {
+            arena.limit((i + 1) * slotSize).position(i * slotSize);
+            slots[i] = arena.slice();
+        }
+    }
+
+    /** Switch between line and framed encoding; applies to frames offered afterwards. */
+    public void setFramed(boolean framed) {
+        this.framed = framed;
+    }
+
+    /**
+     * Copy the bytes between frame's position and limit into the ring.
+     * The caller may reuse the buffer as soon as this returns.
+     */
+    public boolean offer(int type, ByteBuffer frame) {
+        lock.lock();
+        try {
+            return put(type, frame);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Encode msg as a UTF-8 text frame (newline-terminated in line mode). */
+    public boolean offerText(String msg) {
+        lock.lock();
+        try {
+            textScratch.clear();
+            utf8.reset();
+            CoderResult r = utf8.encode(CharBuffer.wrap(msg), textScratch, true);
+            if (r.isOverflow() || !utf8.flush(textScratch).isUnderflow()) {
+                framesDropped++;
+                return false;
+            }
+            if (!framed) {
+                if (!textScratch.hasRemaining()) {
+                    framesDropped++;
+                    return false;
+                }
+                textScratch.put((byte) '\n');
+            }
+            textScratch.flip();
+            return put(FrameReader.TYPE_TEXT, textScratch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock
+    private boolean put(int type, ByteBuffer payload) {
+        int needed = framed ? payload.remaining() + 6 : payload.remaining();
+        if (needed > slotSize) {
+            framesDropped++;
+            return false;
+        }
+        ByteBuffer slot = claimSlot();
+        if (slot == null) return false;
+        if (framed) {
+            FrameReader.putVarint(slot, payload.remaining() + 1);
+            slot.put((byte) type);
+        }
+        slot.put(payload);
+        commitSlot(slot);
+        return true;
+    }
+
+    private ByteBuffer claimSlot() {
+        if (count == slots.length) {
+            framesDropped++;
+            return null;
+        }
+        ByteBuffer slot = slots[(head + count) % slots.length];
+        slot.clear();
+        return slot;
+    }
+
+    private void commitSlot(ByteBuffer slot) {
+        slot.flip();
+        count++;
+        notEmpty.signal();
+    }
+
+    /**
+     * Block until at least one frame is pending, then expose all pending frames
+     * in order through {@link #batch()}. Returns how many entries are valid.
+     */
+    public int awaitBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == 0) notEmpty.await();
+            int n = count;
+            taken = n;
+            for (int i = 0; i < n; i++) {
+                batch[i] = slots[(head + i) % slots.length];
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ByteBuffer[] batch() {
+        return batch;
+    }
+
+    /** Give the first n batched slots back to producers after they were written. */
+    public void release(int n, long bytes) {
+        lock.lock();
+        try {
+            // only what the last awaitBatch() handed out; a stray release must not free pending frames
+            n = Math.min(n, taken);
+            head = (head + n) % slots.length;
+            count -= n;
+            taken = 0;
+            bytesWritten += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop everything pending, e.g. frames left over from a previous
+     * connection. Only call this while no writer is running: the slots of a
+     * batch in flight are reset too.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            head = 0;
+            count = 0;
+            taken = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int depth() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public long framesDropped() {
+        return framesDropped;
+    }
+}
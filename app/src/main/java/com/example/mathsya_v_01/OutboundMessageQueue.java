@@ -0,0 +1,152 @@
+package com.example.mathsya_v_01;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Outbound messages for a link that may be down, split by how they may be
+ * treated while they wait.
+ *
+ * <ul>
+ *   <li><b>Commands</b> (arm_system, disarm_system, ...) go into a bounded
+ *   lock-free MPSC ring and are sent in order. They are never dropped to make
+ *   room; when the ring is full the offer is refused and the caller decides.</li>
+ *   <li><b>Control</b> frames (continuous joystick/throttle state) only matter
+ *   in their newest form. Each kind has one slot, and a new frame replaces the
+ *   pending one of the same kind.</li>
+ * </ul>
+ *
+ * {@link #drain} sends pending commands first, then the latest frame of each
+ * control kind, in one pass. After a reconnect that is the whole backlog:
+ * the commands plus one current control state.
+ *
+ * Producers never block or lock. {@link #drain} and {@link #clear} are the
+ * single consumer and are serialised internally. Depth is O(1).
+ */
+public final class OutboundMessageQueue {
+
+    public interface Sender {
+        /** @return false if the message could not be handed to the link */
+        boolean send(String message);
+    }
+
+    // ---- commands: Vyukov bounded MPSC ring ----
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final AtomicReferenceArray<String> commands;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;     // consumer-owned
+
+    // ---- control: one slot per kind ----
+    private final AtomicReferenceArray<String> control;
+
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+
+    /**
+     * @param commandCapacity pending commands, rounded up to a power of two
+     * @param controlKinds    number of independent control slots
+     */
+    public OutboundMessageQueue(int commandCapacity, int controlKinds) {
+        int capacity = Integer.highestOneBit(Math.max(2, commandCapacity) - 1) << 1;
+        mask = capacity - 1;
+        sequence = new AtomicLongArray(capacity);
+        commands = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < capacity; i++) sequence.set(i, i);
+        control = new AtomicReferenceArray<>(controlKinds);
+    }
+
+    // ---------------------------------------------------------
+    // PRODUCERS (any thread, lock-free)
+    // ---------------------------------------------------------
+
+    /** @return false if the ring is full; nothing already queued is dropped */
+    public boolean offerCommand(String message) {
+        while (true) {
+            long t = tail.get();
+            int idx = (int) (t & mask);
+            long diff = sequence.get(idx) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    commands.lazySet(idx, message);
+                    sequence.lazySet(idx, t + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                refused.incrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    /** Make message the pending frame of this kind, replacing any older one. */
+    public void offerControl(int kind, String message) {
+        if (control.getAndSet(kind, message) != null) superseded.incrementAndGet();
+    }
+
+    // ---------------------------------------------------------
+    // CONSUMER
+    // ---------------------------------------------------------
+
+    /**
+     * Send everything pending through sender: commands in order, then the
+     * latest frame of each control kind. Stops at the first refused send and
+     * keeps that message (and everything after it) pending.
+     *
+     * @return number of messages sent
+     */
+    public synchronized int drain(Sender sender) {
+        int sent = 0;
+        while (true) {
+            long h = head;
+            int idx = (int) (h & mask);
+            if (sequence.get(idx) != h + 1) break;  // empty, or producer still writing
+            if (!sender.send(commands.get(idx))) return sent;
+            commands.lazySet(idx, null);
+            sequence.lazySet(idx, h + mask + 1);
+            head = h + 1;
+            sent++;
+        }
+        for (int kind = 0; kind < control.length(); kind++) {
+            String m = control.getAndSet(kind, null);
+            if (m == null) continue;
+            if (!sender.send(m)) {
+                // put it back unless a newer frame arrived meanwhile
+                control.compareAndSet(kind, null, m);
+                return sent;
+            }
+            sent++;
+        }
+        return sent;
+    }
+
+    /** Discard everything pending. */
+    public synchronized void clear() {
+        drain(m -> true);
+    }
+
+    // ---------------------------------------------------------
+    // METRICS
+    // ---------------------------------------------------------
+    public int pendingCommands() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public boolean hasPendingControl() {
+        for (int kind = 0; kind < control.length(); kind++) {
+            if (control.get(kind) != null) return true;
+        }
+        return false;
+    }
+
+    /** Control frames replaced before they were sent. */
+    public long supersededCount() {
+        return superseded.get();
+    }
+
+    /** Commands refused because the ring was full. */
+    public long refusedCount() {
+        return refused.get();
+    }
+}
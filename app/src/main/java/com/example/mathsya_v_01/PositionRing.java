@@ -0,0 +1,84 @@
+package com.example.mathsya_v_01;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free queue of positions from one writer (the thread that decodes
+ * telemetry) to one reader (the UI thread), in two primitive arrays.
+ *
+ * Unlike {@link TelemetryMailbox}, nothing is overwritten: the track needs
+ * every position, not just the newest. The writer never waits; when the
+ * reader falls a whole ring behind, new positions are dropped and counted.
+ */
+public final class PositionRing {
+
+    public interface Sink {
+        void accept(double lat, double lon);
+    }
+
+    private final double[] lat;
+    private final double[] lon;
+    private final int mask;
+
+    // Positions [tail, head) are queued; head is written by the writer only,
+    // tail by the reader only
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long dropped;  // writer only
+
+    /** capacity is rounded up to a power of two. */
+    public PositionRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        lat = new double[size];
+        lon = new double[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Writer: queue a position. Returns true when the ring was empty, i.e.
+     * when the caller should have the reader drain it.
+     */
+    public boolean offer(double latitude, double longitude) {
+        long h = head.get();
+        long t = tail.get();
+        if (h - t > mask) {
+            dropped++;
+            return false;
+        }
+        int i = (int) h & mask;
+        lat[i] = latitude;
+        lon[i] = longitude;
+        head.set(h + 1);
+        // read tail after publishing head: either this sees the reader done, or
+        // the reader's next look at head sees this position
+        return tail.get() == h;
+    }
+
+    /** Reader: hand every queued position to sink, oldest first. Returns how many. */
+    public int drain(Sink sink) {
+        long t = tail.get();
+        long start = t;
+        for (long h = head.get(); t != h; h = head.get()) {
+            for (; t != h; t++) {
+                int i = (int) t & mask;
+                sink.accept(lat[i], lon[i]);
+            }
+            tail.set(t);
+        }
+        return (int) (t - start);
+    }
+
+    /** Reader: forget what is queued, e.g. when the track starts afresh. */
+    public void clear() {
+        tail.set(head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Positions lost because the reader was a whole ring behind. */
+    public long dropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.mathsya_v_01;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Finds a reachable vehicle endpoint by racing several checks at once.
+ *
+ * Every candidate host:port gets one connection that sends the hello line and
+ * waits for a reply line, and every host an ICMP echo. All of them run in
+ * parallel with the same timeout, so a cold probe costs at most one timeout
+ * instead of one per method. A reply to the hello wins at once ({@link
+ * Method#HELLO}); a port that accepts the connection but does not answer
+ * still counts as open ({@link Method#TCP}) once its wait is over.
+ *
+ * An ICMP answer only shows that the host is up, so it does not end the race.
+ * It is reported, as the host with port 0 ({@link Result#hostOnly()}), only if
+ * no port answered. Only an endpoint proven by a connection is stored as
+ * last-known-good. The next probe checks that endpoint alone with a short TCP
+ * connect and only races the full list if that fails.
+ */
+public final class ReachabilityProbe {
+
+    private static final String TAG = "ReachabilityProbe";
+    private static final String PREF_LAST_GOOD = "probe.last_good";
+    private static final int CACHED_TIMEOUT_MS = 500;
+    private static final byte[] HELLO = "{\"hello\":1}\n".getBytes(StandardCharsets.UTF_8);
+
+    public enum Method { CACHED, ICMP, TCP, HELLO }
+
+    public static final class Endpoint {
+        public final String host;
+        public final int port;
+
+        public Endpoint(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        /** "host:port", or null if s is not in that form. */
+        static Endpoint parse(String s) {
+            if (s == null) return null;
+            int colon = s.lastIndexOf(':');
+            if (colon <= 0) return null;
+            try {
+                return new Endpoint(s.substring(0, colon), Integer.parseInt(s.substring(colon + 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    public static final class Result {
+        /** For an ICMP result only the host is known; the port is 0. */
+        public final Endpoint endpoint;
+        public final Method method;
+        public final long elapsedMs;
+
+        Result(Endpoint endpoint, Method method, long elapsedMs) {
+            this.endpoint = endpoint;
+            this.method = method;
+            this.elapsedMs = elapsedMs;
+        }
+
+        /** True if only the host answered (ICMP); no port was shown to work. */
+        public boolean hostOnly() {
+            return method == Method.ICMP;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + (hostOnly() ? endpoint.host : endpoint) + " in " + elapsedMs + " ms";
+        }
+    }
+
+    public interface Callback {
+        /** Main thread. result is null if no candidate answered in time. */
+        void onResult(Result result);
+    }
+
+    private final SharedPreferences prefs;
+    private final List<Endpoint> candidates;
+    private final int timeoutMs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile Attempt current;
+
+    /**
+     * @param candidates endpoints in order of preference
+     * @param timeoutMs  per check; all checks run at once, so this bounds the probe
+     */
+    public ReachabilityProbe(SharedPreferences prefs, List<Endpoint> candidates, int timeoutMs) {
+        this.prefs = prefs;
+        this.candidates = new ArrayList<>(candidates);
+        this.timeoutMs = timeoutMs;
+    }
+
+    // ---------------------------------------------------------
+    // PROBE
+    // ---------------------------------------------------------
+
+    /** Start a probe, cancelling one still running. */
+    public void probe(Callback callback) {
+        cancel();
+        Attempt a = new Attempt(callback);
+        current = a;
+        Endpoint cached = Endpoint.parse(prefs.getString(PREF_LAST_GOOD, null));
+
+        new Thread(() -> {
+            if (cached != null && tcpConnect(a, cached, CACHED_TIMEOUT_MS)) {
+                a.finish(cached, Method.CACHED);
+                return;
+            }
+            race(a);
+        }, "Probe-cached").start();
+    }
+
+    // Start every check at once; the first port that answers finishes the attempt
+    private void race(Attempt a) {
+        List<Runnable> checks = new ArrayList<>();
+        Set<String> pingedHosts = new HashSet<>();
+        for (Endpoint e : candidates) {
+            if (pingedHosts.add(e.host)) checks.add(() -> {
+                if (icmp(e)) a.hostUp.compareAndSet(null, new Endpoint(e.host, 0));
+            });
+            checks.add(() -> {
+                Method m = hello(a, e);
+                if (m != null) a.finish(e, m);
+            });
+        }
+
+        AtomicInteger remaining = new AtomicInteger(checks.size());
+        for (int i = 0; i < checks.size(); i++) {
+            Runnable check = checks.get(i);
+            new Thread(() -> {
+                check.run();
+                // last one out reports the ping, or failure, if no port answered
+                if (remaining.decrementAndGet() == 0) {
+                    Endpoint host = a.hostUp.get();
+                    a.finish(host, host != null ? Method.ICMP : null);
+                }
+            }, "Probe-" + i).start();
+        }
+    }
+
+    /** Stop the current probe without reporting a result. */
+    public void cancel() {
+        Attempt a = current;
+        if (a != null) a.stop();
+    }
+
+    /** Forget the stored endpoint, e.g. after it stopped answering. */
+    public void forgetLastGood() {
+        prefs.edit().remove(PREF_LAST_GOOD).apply();
+    }
+
+    // One probe run. Checks of a cancelled or finished run can no longer report.
+    private final class Attempt {
+        final Callback callback;
+        final long startMs = SystemClock.elapsedRealtime();
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final ConcurrentLinkedQueue<Closeable> openSockets = new ConcurrentLinkedQueue<>();
+        // a host that answered a ping; only reported if no port answers
+        final AtomicReference<Endpoint> hostUp = new AtomicReference<>();
+
+        Attempt(Callback callback) {
+            this.callback = callback;
+        }
+
+        void finish(Endpoint e, Method method) {
+            if (!stop()) return;
+            Result result = e == null ? null
+                    : new Result(e, method, SystemClock.elapsedRealtime() - startMs);
+            if (result != null) {
+                // a ping says nothing about the port; keep the last proven endpoint
+                if (!result.hostOnly()) prefs.edit().putString(PREF_LAST_GOOD, e.toString()).apply();
+                Log.d(TAG, "Reachable: " + result);
+            } else {
+                Log.d(TAG, "No candidate reachable");
+            }
+            mainHandler.post(() -> callback.onResult(result));
+        }
+
+        // the losers are still waiting on their sockets; cut them short
+        boolean stop() {
+            if (!done.compareAndSet(false, true)) return false;
+            Closeable c;
+            while ((c = openSockets.poll()) != null) closeQuietly(c);
+            return true;
+        }
+
+        // Sockets opened after stop() are closed right away
+        void track(Socket s) {
+            openSockets.add(s);
+            if (done.get()) closeQuietly(s);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // CHECKS: true on success, false on failure or when cut short
+    // ---------------------------------------------------------
+    private boolean icmp(Endpoint e) {
+        try {
+            return InetAddress.getByName(e.host).isReachable(timeoutMs);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private boolean tcpConnect(Attempt a, Endpoint e, int timeout) {
+        Socket s = new Socket();
+        a.track(s);
+        try {
+            s.connect(new InetSocketAddress(e.host, e.port), timeout);
+            return true;
+        } catch (IOException ex) {
+            return false;
+        } finally {
+            a.openSockets.remove(s);
+            closeQuietly(s);
+        }
+    }
+
+    // Connect, send the hello line and wait for any reply line: HELLO if one
+    // comes, TCP if the connection was accepted but nothing answered, else null
+    private Method hello(Attempt a, Endpoint e) {
+        Socket s = new Socket();
+        a.track(s);
+        try {
+            long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+            try {
+                s.connect(new InetSocketAddress(e.host, e.port), timeoutMs);
+            } catch (IOException ex) {
+                return null;
+            }
+            try {
+                s.setSoTimeout((int) Math.max(1, deadline - SystemClock.elapsedRealtime()));
+                OutputStream out = s.getOutputStream();
+                out.write(HELLO);
+                out.flush();
+                InputStream in = s.getInputStream();
+                int b;
+                while ((b = in.read()) != -1) {
+                    if (b == '\n') return Method.HELLO;
+                }
+            } catch (IOException ignored) {
+                // silent or hung up; the port was still open
+            }
+            return Method.TCP;
+        } finally {
+            a.openSockets.remove(s);
+            closeQuietly(s);
+        }
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException ignored) {}
+    }
+}
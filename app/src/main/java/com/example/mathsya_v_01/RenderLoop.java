@@ -0,0 +1,69 @@
+package com.example.mathsya_v_01;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a screen's render pass at most once per display frame.
+ *
+ * Anything that changes what the screen shows calls {@link #invalidate} (from
+ * any thread) instead of touching views. The first call after a frame asks
+ * Choreographer for the next one; further calls before it fires are free. The
+ * render pass then reads the current state once and updates the views that
+ * changed. So UI work is bounded by the refresh rate, not by how fast
+ * telemetry, sends or link events arrive, and no frame is requested while
+ * nothing changes.
+ */
+public final class RenderLoop implements Choreographer.FrameCallback {
+
+    public interface Renderer {
+        /** Main thread, once per frame in which something was invalidated. */
+        void render(long frameTimeNanos);
+    }
+
+    private final Renderer renderer;
+    private final FrameScheduler scheduler = new FrameScheduler(this);
+    private volatile boolean stopped;
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    public RenderLoop(Renderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /** Any thread: render in the next frame. */
+    public void invalidate() {
+        invalidations.incrementAndGet();
+        if (!stopped) scheduler.request();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        // first: an invalidate during the pass asks for the next frame
+        scheduler.frameStarted();
+        if (stopped) return;
+        frames.incrementAndGet();
+        renderer.render(frameTimeNanos);
+    }
+
+    /** No more render passes, e.g. once the views are gone. */
+    public void stop() {
+        stopped = true;
+    }
+
+    // ---------------------------------------------------------
+    // METRICS
+    // ---------------------------------------------------------
+
+    /** Calls to {@link #invalidate}. */
+    public long invalidationCount() {
+        return invalidations.get();
+    }
+
+    /** Render passes run. */
+    public long frameCount() {
+        return frames.get();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Matches control frames to the vehicle's echo of their sequence number and
+ * records the round trip in a {@link LatencyHistogram}.
+ *
+ * The vehicle echoes each applied frame: a binary datagram comes back as is,
+ * anything else is answered with a {@code {"ack":<seq>}} line, or with a
+ * {@link FrameReader#TYPE_ACK} frame on a framed link. Send times of the last
+ * {@link #WINDOW} sequences are kept in a fixed ring; echoes older than that,
+ * duplicates and echoes for unknown sequences are ignored.
+ *
+ * {@link #onSent} and {@link #onEcho} may run on different threads.
+ */
+public final class RttTracker {
+
+    public static final long NO_ACK = Long.MIN_VALUE;
+
+    private static final int WINDOW = 256;
+    private static final int MASK = WINDOW - 1;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // Slot i holds the send time of the last sequence with (seq & MASK) == i
+    private final AtomicLongArray sentSeq = new AtomicLongArray(WINDOW);
+    private final AtomicLongArray sentAtNanos = new AtomicLongArray(WINDOW);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public RttTracker() {
+        clearWindow();
+    }
+
+    public void onSent(int sequence, long nanoTime) {
+        int i = sequence & MASK;
+        sentSeq.set(i, EMPTY);  // hide the slot while it changes
+        sentAtNanos.set(i, nanoTime);
+        sentSeq.set(i, sequence);
+    }
+
+    /** @return true if the echo matched an outstanding frame and was recorded */
+    public boolean onEcho(int sequence, long nanoTime) {
+        int i = sequence & MASK;
+        if (sentSeq.get(i) != sequence) return false;
+        long sentAt = sentAtNanos.get(i);
+        // first echo wins; the slot is empty for duplicates
+        if (!sentSeq.compareAndSet(i, sequence, EMPTY)) return false;
+        histogram.record((nanoTime - sentAt) / 1000);
+        return true;
+    }
+
+    public LatencyHistogram histogram() {
+        return histogram;
+    }
+
+    /** Start a new connection: drop outstanding frames and all samples. */
+    public void reset() {
+        clearWindow();
+        histogram.reset();
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < WINDOW; i++) sentSeq.set(i, EMPTY);
+    }
+
+    /** One-line summary: p50/p90/p99/max in ms and the sample count. */
+    public String summary() {
+        LatencyHistogram h = histogram;
+        return String.format(Locale.US, "RTT p50 %.1f / p90 %.1f / p99 %.1f / max %.1f ms (n=%d)",
+                h.percentileMicros(50) / 1000.0, h.percentileMicros(90) / 1000.0,
+                h.percentileMicros(99) / 1000.0, h.maxMicros() / 1000.0, h.count());
+    }
+
+    // ---------------------------------------------------------
+    // ECHO PARSING
+    // ---------------------------------------------------------
+
+    /**
+     * Sequence number of a {@code {"ack":<seq>}} text frame, or {@link #NO_ACK}
+     * if the payload is anything else. Does not allocate or move payload.
+     */
+    public static long parseAck(ByteBuffer payload) {
+        int p = payload.position();
+        int end = payload.limit();
+        // acks are tiny; anything longer is telemetry
+        if (end - p > 64) return NO_ACK;
+        int key = indexOf(payload, p, end);
+        if (key < 0) return NO_ACK;
+
+        int i = key + 5;  // past "ack"
+        while (i < end && (payload.get(i) == ' ' || payload.get(i) == ':')) i++;
+        boolean negative = i < end && payload.get(i) == '-';
+        if (negative) i++;
+        long value = 0;
+        int digits = 0;
+        while (i < end && digits < 11) {
+            int c = payload.get(i) - '0';
+            if (c < 0 || c > 9) break;
+            value = value * 10 + c;
+            digits++;
+            i++;
+        }
+        if (digits == 0) return NO_ACK;
+        return (int) (negative ? -value : value);
+    }
+
+    // Position of "ack" (with quotes) in [from, to), or -1
+    private static int indexOf(ByteBuffer b, int from, int to) {
+        for (int i = from; i + 5 <= to; i++) {
+            if (b.get(i) == '"' && b.get(i + 1) == 'a' && b.get(i + 2) == 'c'
+                    && b.get(i + 3) == 'k' && b.get(i + 4) == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
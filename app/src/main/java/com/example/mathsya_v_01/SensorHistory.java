@@ -0,0 +1,51 @@
+package com.example.mathsya_v_01;
+
+/**
+ * One {@link SensorSeries} per water-quality sensor shown on the dashboard
+ * cards, fed from decoded telemetry.
+ */
+public final class SensorHistory {
+
+    /** Sensors with a history, in dashboard card order. */
+    public static final int[] FIELDS = {
+            TelemetrySnapshot.F_PH, TelemetrySnapshot.F_DO, TelemetrySnapshot.F_TEMP,
+            TelemetrySnapshot.F_TURBIDITY, TelemetrySnapshot.F_AMMONIA, TelemetrySnapshot.F_DEPTH
+    };
+
+    private final SensorSeries[] series = new SensorSeries[FIELDS.length];
+
+    public SensorHistory(int samplesPerSensor) {
+        for (int i = 0; i < series.length; i++) series[i] = new SensorSeries(samplesPerSensor);
+    }
+
+    /**
+     * Append the fields carried by the snapshot's most recent message.
+     * timeMs must not go backwards: use SystemClock.elapsedRealtime(), not the wall clock.
+     */
+    public void record(long timeMs, TelemetrySnapshot t) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            int f = FIELDS[i];
+            if ((t.updated & f) == 0) continue;
+            series[i].append(timeMs, valueOf(f, t));
+        }
+    }
+
+    /** Series for a TelemetrySnapshot.F_* flag, or null if it has no history. */
+    public SensorSeries get(int field) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i] == field) return series[i];
+        }
+        return null;
+    }
+
+    private static double valueOf(int field, TelemetrySnapshot t) {
+        switch (field) {
+            case TelemetrySnapshot.F_PH: return t.ph;
+            case TelemetrySnapshot.F_DO: return t.dissolvedOxygen;
+            case TelemetrySnapshot.F_TEMP: return t.temperature;
+            case TelemetrySnapshot.F_TURBIDITY: return t.turbidity;
+            case TelemetrySnapshot.F_AMMONIA: return t.ammonia;
+            default: return t.depth;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.mathsya_v_01;
+
+/**
+ * Fixed-capacity time series for one sensor: a circular long[] of timestamps
+ * and a circular double[] of values, so nothing is boxed and memory never grows.
+ *
+ * Appends are O(1) and overwrite the oldest sample once full. Timestamps must
+ * be non-decreasing. Range queries reduce the samples straight into
+ * caller-provided arrays sized for the chart (e.g. one bucket per pixel column),
+ * so charting never copies the raw history.
+ *
+ * One writer and any number of readers; methods are synchronized.
+ */
+public final class SensorSeries {
+
+    private final long[] times;
+    private final double[] values;
+    private int start = 0;  // physical index of the oldest sample
+    private int size = 0;
+
+    public SensorSeries(int capacity) {
+        times = new long[capacity];
+        values = new double[capacity];
+    }
+
+    public synchronized void append(long timeMs, double value) {
+        int cap = times.length;
+        int slot;
+        if (size < cap) {
+            slot = (start + size) % cap;
+            size++;
+        } else {
+            slot = start;
+            start = (start + 1) % cap;
+        }
+        times[slot] = timeMs;
+        values[slot] = value;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long firstTime() {
+        return size == 0 ? 0 : times[start];
+    }
+
+    public synchronized long lastTime() {
+        return size == 0 ? 0 : times[(start + size - 1) % times.length];
+    }
+
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    // ---------------------------------------------------------
+    // MIN / MAX / MEAN BUCKETS
+    // ---------------------------------------------------------
+
+    /**
+     * Split [fromMs, toMs) into outTime.length equal buckets and reduce each to
+     * min, max and mean. Empty buckets are skipped, so the result is compacted.
+     *
+     * @return number of buckets written to the output arrays
+     */
+    public synchronized int downsample(long fromMs, long toMs,
+                                       long[] outTime, double[] outMin,
+                                       double[] outMax, double[] outMean) {
+        int buckets = outTime.length;
+        if (size == 0 || buckets == 0 || toMs <= fromMs) return 0;
+
+        int lo = lowerBound(fromMs);
+        int hi = lowerBound(toMs);
+        double span = (double) (toMs - fromMs) / buckets;
+
+        int written = 0;
+        int current = -1;
+        double min = 0, max = 0, sum = 0;
+        int count = 0;
+        for (int i = lo; i < hi; i++) {
+            int p = phys(i);
+            int b = (int) Math.min(buckets - 1, (times[p] - fromMs) / span);
+            if (b != current) {
+                if (count > 0) {
+                    written = emit(written, current, fromMs, span, min, max, sum / count,
+                            outTime, outMin, outMax, outMean);
+                }
+                current = b;
+                min = max = sum = values[p];
+                count = 1;
+            } else {
+                double v = values[p];
+                if (v < min) min = v;
+                if (v > max) max = v;
+                sum += v;
+                count++;
+            }
+        }
+        if (count > 0) {
+            written = emit(written, current, fromMs, span, min, max, sum / count,
+                    outTime, outMin, outMax, outMean);
+        }
+        return written;
+    }
+
+    private static int emit(int i, int bucket, long fromMs, double span,
+                            double min, double max, double mean,
+                            long[] outTime, double[] outMin, double[] outMax, double[] outMean) {
+        outTime[i] = fromMs + (long) (bucket * span + span / 2);
+        outMin[i] = min;
+        outMax[i] = max;
+        outMean[i] = mean;
+        return i + 1;
+    }
+
+    // ---------------------------------------------------------
+    // LTTB
+    // ---------------------------------------------------------
+
+    /**
+     * Largest-Triangle-Three-Buckets reduction of [fromMs, toMs) to at most
+     * outTime.length real samples, which keeps the visual shape of the line.
+     *
+     * @return number of points written to the output arrays
+     */
+    public synchronized int lttb(long fromMs, long toMs, long[] outTime, double[] outValue) {
+        int threshold = outTime.length;
+        if (size == 0 || threshold == 0) return 0;
+
+        int lo = lowerBound(fromMs);
+        int hi = lowerBound(toMs);
+        int n = hi - lo;
+        if (n <= 0) return 0;
+
+        if (threshold >= n || threshold < 3) {
+            int count = Math.min(n, threshold);
+            for (int i = 0; i < count; i++) {
+                int p = phys(lo + i);
+                outTime[i] = times[p];
+                outValue[i] = values[p];
+            }
+            return count;
+        }
+
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = lo;  // previously selected sample
+        int out = 0;
+        outTime[out] = times[phys(a)];
+        outValue[out++] = values[phys(a)];
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // average of the next bucket
+            int avgStart = lo + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(lo + (int) ((i + 2) * every) + 1, hi);
+            double avgT = 0, avgV = 0;
+            int avgLen = avgEnd - avgStart;
+            for (int j = avgStart; j < avgEnd; j++) {
+                int p = phys(j);
+                avgT += times[p];
+                avgV += values[p];
+            }
+            if (avgLen > 0) {
+                avgT /= avgLen;
+                avgV /= avgLen;
+            } else {
+                int p = phys(hi - 1);
+                avgT = times[p];
+                avgV = values[p];
+            }
+
+            // pick the sample in this bucket forming the largest triangle
+            int rangeStart = lo + (int) (i * every) + 1;
+            int rangeEnd = lo + (int) ((i + 1) * every) + 1;
+            int pa = phys(a);
+            double aT = times[pa], aV = values[pa];
+            double maxArea = -1;
+            int chosen = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                int p = phys(j);
+                double area = Math.abs((aT - avgT) * (values[p] - aV)
+                        - (aT - times[p]) * (avgV - aV));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            int pc = phys(chosen);
+            outTime[out] = times[pc];
+            outValue[out++] = values[pc];
+            a = chosen;
+        }
+
+        int last = phys(hi - 1);
+        outTime[out] = times[last];
+        outValue[out++] = values[last];
+        return out;
+    }
+
+    // ---------------------------------------------------------
+    // HELPERS
+    // ---------------------------------------------------------
+    private int phys(int logical) {
+        return (start + logical) % times.length;
+    }
+
+    // first logical index whose timestamp is >= t
+    private int lowerBound(long t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[phys(mid)] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
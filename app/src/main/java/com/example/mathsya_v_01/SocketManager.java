@@ -7,9 +7,11 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -24,7 +26,9 @@ import okio.ByteString;
  * Features:
  * - Safe connection state handling (connected only set in onOpen).
  * - Exponential backoff reconnect (stops when manually closed).
- * - Message queueing while disconnected (bounded by queue limit).
+ * - Message queueing while disconnected: commands are kept in order and never
+ *   dropped, continuous control frames are superseded by newer ones
+ *   (see {@link OutboundMessageQueue}).
  * - Callbacks executed on main thread.
  * - Uses OkHttp pingInterval (no manual "Ping" text messages).
  */
@@ -32,29 +36,65 @@ public class SocketManager {
     private static final String TAG = "SocketManager";
 
     private final OkHttpClient client;
-    private WebSocket webSocket;
+    private volatile WebSocket webSocket;
     private final WebSocketCallback callback;
     private final Handler mainHandler;
-    private final ConcurrentLinkedQueue<String> outgoingQueue = new ConcurrentLinkedQueue<>();
+
+    // Control kinds: one pending frame each
+    public static final int CONTROL_STATE = 0;
+    private static final int CONTROL_KINDS = 1;
+    // Commands are rare; this only fills if the link is down for a long time
+    private static final int COMMAND_QUEUE_MAX = 64;
+    private final OutboundMessageQueue outgoing = new OutboundMessageQueue(COMMAND_QUEUE_MAX, CONTROL_KINDS);
 
     // Connection bookkeeping
     private final AtomicBoolean connected = new AtomicBoolean(false);
     private final AtomicBoolean manualClose = new AtomicBoolean(false);
     private String url;
+    private volatile FlightRecorder recorder;
 
     // Reconnect/backoff
     private final Handler reconnectHandler = new Handler(Looper.getMainLooper());
     private long reconnectDelayMs = 1000; // start 1s
     private final long RECONNECT_MAX_MS = 30_000; // max 30s
 
-    // Queue limit to avoid unbounded memory growth
-    private final int QUEUE_MAX = 200;
-
     public interface WebSocketCallback {
-        void onMessageReceived(String message);
         void onStatusChanged(String status);
+
+        /**
+         * Optional String adapter, on the main thread: WebSocket text messages,
+         * and binary messages the binary callback did not consume (or all of
+         * them without one), as Base64 text.
+         */
+        default void onMessageReceived(String message) {}
+
+        /**
+         * Main thread: the heartbeat watchdog found the link silent for
+         * silentMs. The socket is being torn down and will reconnect.
+         */
+        default void onLinkDead(long silentMs) {}
+
+        /**
+         * Main thread, at most once per display frame: the text messages that
+         * arrived since the last frame, oldest first. The list is reused after
+         * the call. Defaults to one {@link #onMessageReceived} per message.
+         */
+        default void onMessagesReceived(List<String> batch, int dropped) {
+            for (int i = 0; i < batch.size(); i++) onMessageReceived(batch.get(i));
+        }
     }
 
+    // Text messages reach the callback once per display frame, not one post each
+    private static final int INBOUND_PER_FRAME = 256;
+    private volatile FrameCoalescer<String> inbound =
+            new FrameCoalescer<>(INBOUND_PER_FRAME, null, this::deliverBatch);
+
+    // Binary messages, on OkHttp's reader thread
+    private volatile BinaryMessageCallback binaryCallback;
+
+    // App-level heartbeat; OkHttp's 15 s ping is far too slow to notice a dead link
+    private final LinkWatchdog watchdog = new LinkWatchdog(this::sendPing, this::onLinkDead);
+
     public SocketManager(WebSocketCallback callback) {
         this.callback = callback;
         this.mainHandler = new Handler(Looper.getMainLooper());
@@ -74,7 +114,7 @@ public class SocketManager {
         this.url = url;
         manualClose.set(false);
         reconnectDelayMs = 1000;
-        outgoingQueue.clear();
+        outgoing.clear();
         connect();
     }
 
@@ -96,27 +136,54 @@ public class SocketManager {
                 Log.d(TAG, "onOpen");
                 connected.set(true);
                 reconnectDelayMs = 1000; // reset backoff
+                watchdog.start();
                 postStatus("Connected");
-                // flush queued messages
-                flushQueue();
+                // pending commands plus the current control state, in one batch
+                Log.d(TAG, "Flushed queued messages: " + flushQueue());
             }
 
             @Override
             public void onMessage(@NonNull WebSocket ws, @NonNull String text) {
+                watchdog.heard();
+                FlightRecorder rec = recorder;
+                if (rec != null) rec.record(FlightRecorder.DIR_INBOUND, FlightRecorder.CHANNEL_WEBSOCKET, text);
+                if (LinkWatchdog.isPong(text)) {
+                    watchdog.confirm();  // the server answers pings: fast deadline from now on
+                    return;
+                }
                 Log.d(TAG, "onMessage: " + text);
-                postMessage(text);
+                inbound.offer(text);
             }
 
             @Override
             public void onMessage(@NonNull WebSocket ws, @NonNull ByteString bytes) {
-                Log.d(TAG, "onMessage (bytes)");
-                postMessage(bytes.hex());
+                watchdog.heard();
+                // asByteBuffer() wraps the ByteString's array read-only, no copy
+                ByteBuffer payload = bytes.asByteBuffer();
+                FlightRecorder rec = recorder;
+                if (rec != null) {
+                    rec.record(FlightRecorder.DIR_INBOUND, FlightRecorder.CHANNEL_WEBSOCKET,
+                            FrameReader.TYPE_BINARY, payload);
+                }
+                BinaryMessageCallback binary = binaryCallback;
+                if (binary != null) {
+                    int pos = payload.position();
+                    try {
+                        if (binary.onBinaryMessage(FrameReader.TYPE_BINARY, payload)) return;
+                    } catch (Exception e) {
+                        Log.e(TAG, "Binary callback threw", e);
+                    }
+                    payload.position(pos);
+                }
+                // not consumed: String-only consumers still get it, as Base64
+                inbound.offer(bytes.base64());
             }
 
             @Override
             public void onClosing(@NonNull WebSocket ws, int code, @NonNull String reason) {
                 Log.d(TAG, "onClosing: " + reason);
                 connected.set(false);
+                watchdog.stop();
                 postStatus("Closing: " + reason);
                 ws.close(1000, null);
                 attemptReconnectIfAllowed();
@@ -126,6 +193,7 @@ public class SocketManager {
             public void onClosed(@NonNull WebSocket ws, int code, @NonNull String reason) {
                 Log.d(TAG, "onClosed: " + reason);
                 connected.set(false);
+                watchdog.stop();
                 postStatus("Closed: " + reason);
                 attemptReconnectIfAllowed();
             }
@@ -134,6 +202,7 @@ public class SocketManager {
             public void onFailure(@NonNull WebSocket ws, @NonNull Throwable t, @Nullable Response response) {
                 Log.e(TAG, "onFailure", t);
                 connected.set(false);
+                watchdog.stop();
                 String msg = t.getMessage() != null ? t.getMessage() : "Unknown failure";
                 postStatus("Error: " + msg);
                 attemptReconnectIfAllowed();
@@ -141,57 +210,116 @@ public class SocketManager {
         });
     }
 
-    private void flushQueue() {
-        int sent = 0;
-        while (!outgoingQueue.isEmpty() && connected.get()) {
-            String m = outgoingQueue.poll();
-            if (m == null) break;
-            boolean ok = webSocket.send(m);
-            if (!ok) {
-                // if send fails, re-enqueue but avoid infinite loop
-                if (outgoingQueue.size() < QUEUE_MAX) outgoingQueue.offer(m);
-                break;
-            } else {
-                sent++;
-            }
-        }
-        Log.d(TAG, "Flushed queued messages: " + sent);
+    // Hand everything pending to OkHttp in one pass; its writer thread puts it on the wire.
+    // A refused send (socket closing) leaves the rest queued for the next connection.
+    private int flushQueue() {
+        WebSocket ws = webSocket;
+        if (!connected.get() || ws == null) return 0;
+        return outgoing.drain(ws::send);
     }
 
     /**
-     * Send a message. If not connected, the message will be queued (bounded).
+     * Send a command (e.g. arm_system). While disconnected it is queued in
+     * order and sent on reconnect; commands are never dropped to make room.
+     *
+     * @return false if the command queue is full and the command was refused
      */
-    public synchronized void sendMessage(@NonNull String message) {
-        if (connected.get() && webSocket != null) {
-            boolean ok = webSocket.send(message);
-            if (!ok) {
-                // fallback to queue if immediate send failed
-                enqueueSafe(message);
-                Log.w(TAG, "Immediate send failed — queued message");
-            }
-        } else {
-            enqueueSafe(message);
-            Log.d(TAG, "Not connected — queued message (queue size=" + outgoingQueue.size() + ")");
+    public boolean sendMessage(@NonNull String message) {
+        FlightRecorder rec = recorder;
+        if (rec != null) rec.record(FlightRecorder.DIR_OUTBOUND, FlightRecorder.CHANNEL_WEBSOCKET, message);
+        if (!outgoing.offerCommand(message)) {
+            Log.e(TAG, "Command queue full (" + outgoing.pendingCommands() + ") — refused: " + message);
+            return false;
         }
+        int sent = flushQueue();
+        if (sent == 0) Log.d(TAG, "Not sent — queued command (pending=" + outgoing.pendingCommands() + ")");
+        return true;
     }
 
-    private void enqueueSafe(String message) {
-        if (outgoingQueue.size() >= QUEUE_MAX) {
-            // drop oldest to keep queue bounded
-            outgoingQueue.poll();
-        }
-        outgoingQueue.offer(message);
+    /** Send a continuous control frame of kind {@link #CONTROL_STATE}. */
+    public void sendControl(@NonNull String message) {
+        sendControl(CONTROL_STATE, message);
+    }
+
+    /**
+     * Send a continuous control frame. While disconnected only the newest frame
+     * of each kind is kept; on reconnect it follows the pending commands.
+     */
+    public void sendControl(int kind, @NonNull String message) {
+        FlightRecorder rec = recorder;
+        if (rec != null) rec.record(FlightRecorder.DIR_OUTBOUND, FlightRecorder.CHANNEL_WEBSOCKET, message);
+        outgoing.offerControl(kind, message);
+        flushQueue();
+    }
+
+    public int getPendingCommands() {
+        return outgoing.pendingCommands();
+    }
+
+    public long getControlFramesSuperseded() {
+        return outgoing.supersededCount();
+    }
+
+    /**
+     * How text messages reach {@link WebSocketCallback} on the main thread: at
+     * most maxPerFrame per display frame, and with topicOf only the newest
+     * message per topic (null keeps them all). Messages still staged are lost.
+     */
+    public void setInboundDelivery(int maxPerFrame, @Nullable Function<String, ?> topicOf) {
+        this.inbound = new FrameCoalescer<>(maxPerFrame, topicOf, this::deliverBatch);
+    }
+
+    /** Inbound text messages the UI did not get to (per-frame cap). */
+    public long getInboundDropped() {
+        return inbound.droppedCount();
     }
 
     public boolean isConnected() {
         return connected.get();
     }
 
+    /**
+     * Ping after intervalMs of silence and declare the link dead after
+     * missedBeats intervals; applies from the next connection, once the
+     * server has answered a ping.
+     */
+    public void setHeartbeat(long intervalMs, int missedBeats) {
+        watchdog.setInterval(intervalMs, missedBeats);
+    }
+
+    // Watchdog thread
+    private void sendPing(int n) {
+        WebSocket ws = webSocket;
+        if (connected.get() && ws != null) ws.send(LinkWatchdog.ping(n));
+    }
+
+    // Watchdog thread: cancel() fails the socket, and onFailure reconnects
+    private void onLinkDead(long silentMs) {
+        Log.w(TAG, "Link dead: nothing heard for " + silentMs + " ms");
+        mainHandler.post(() -> callback.onLinkDead(silentMs));
+        WebSocket ws = webSocket;
+        if (ws != null) ws.cancel();
+    }
+
+    /**
+     * Receive WebSocket binary messages as a ByteBuffer view on OkHttp's reader
+     * thread, instead of not at all; null to stop.
+     */
+    public void setBinaryCallback(@Nullable BinaryMessageCallback callback) {
+        this.binaryCallback = callback;
+    }
+
+    /** Record every message sent and received on this socket; null to stop. */
+    public void setRecorder(@Nullable FlightRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     /**
      * Stop and prevent reconnects.
      */
     public synchronized void stop() {
         manualClose.set(true);
+        watchdog.stop();
         if (webSocket != null) {
             try {
                 webSocket.close(1000, "Client closing");
@@ -243,14 +371,13 @@ public class SocketManager {
         }, delay);
     }
 
-    private void postMessage(final String message) {
-        mainHandler.post(() -> {
-            try {
-                callback.onMessageReceived(message);
-            } catch (Exception e) {
-                Log.e(TAG, "Callback onMessageReceived threw", e);
-            }
-        });
+    private void deliverBatch(List<String> batch, int dropped) {
+        if (dropped > 0) Log.w(TAG, dropped + " inbound messages dropped, UI is behind");
+        try {
+            callback.onMessagesReceived(batch, dropped);
+        } catch (Exception e) {
+            Log.e(TAG, "Callback onMessagesReceived threw", e);
+        }
     }
 
     private void postStatus(final String status) {
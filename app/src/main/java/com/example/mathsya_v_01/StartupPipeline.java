@@ -0,0 +1,215 @@
+package com.example.mathsya_v_01;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide state of the launch sequence, from LoadingActivity to the
+ * first control frame on the wire.
+ *
+ * Every stage starts as soon as the one before it completes; there are no
+ * fixed delays. Each stage's time since {@link #begin} is recorded once, so
+ * a slow launch shows where the time went.
+ *
+ * The vehicle socket is opened on the Wi-Fi network as soon as it becomes
+ * available, while the dashboard is still inflating. The dashboard then
+ * {@link #claimConnection claims} it already connected. The network request
+ * is held here too, so it outlives LoadingActivity; {@link #release} ends it.
+ */
+public final class StartupPipeline {
+
+    private static final String TAG = "StartupPipeline";
+    private static final int PRECONNECT_TIMEOUT_MS = 2000;
+
+    public enum Stage {
+        LAUNCH("launch"),
+        NETWORK_REQUESTED("network requested"),
+        NETWORK_AVAILABLE("network available"),
+        SOCKET_CONNECTED("socket connected"),
+        DASHBOARD_CREATED("dashboard created"),
+        LINK_READY("link ready"),
+        FIRST_CONTROL_FRAME("first control frame");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final long NOT_REACHED = -1;
+    private static final long[] reachedAtMs = new long[Stage.values().length];
+
+    static {
+        Arrays.fill(reachedAtMs, NOT_REACHED);
+    }
+
+    // Pre-opened vehicle socket and whoever is waiting for it; guarded by the class
+    private static boolean preconnecting = false;
+    private static SocketChannel preconnected;
+    private static Consumer<SocketChannel> claimant;
+
+    private static ConnectivityManager connectivityManager;
+    private static ConnectivityManager.NetworkCallback networkCallback;
+
+    private StartupPipeline() {}
+
+    // ---------------------------------------------------------
+    // STAGE TIMING
+    // ---------------------------------------------------------
+
+    /** Start a new launch: forget earlier stage times and mark LAUNCH. */
+    public static synchronized void begin() {
+        Arrays.fill(reachedAtMs, NOT_REACHED);
+        reachedAtMs[Stage.LAUNCH.ordinal()] = SystemClock.elapsedRealtime();
+    }
+
+    /** Record that a stage was reached. @return true the first time only */
+    public static synchronized boolean mark(Stage stage) {
+        if (reachedAtMs[Stage.LAUNCH.ordinal()] == NOT_REACHED) return false;  // no launch in progress
+        if (reachedAtMs[stage.ordinal()] != NOT_REACHED) return false;
+        reachedAtMs[stage.ordinal()] = SystemClock.elapsedRealtime();
+        Log.d(TAG, stage.label + " at " + elapsedMs(stage) + " ms");
+        return true;
+    }
+
+    /** Milliseconds from launch to the stage, or -1 if it was not reached. */
+    public static synchronized long elapsedMs(Stage stage) {
+        long launch = reachedAtMs[Stage.LAUNCH.ordinal()];
+        long at = reachedAtMs[stage.ordinal()];
+        if (launch == NOT_REACHED || at == NOT_REACHED) return NOT_REACHED;
+        return at - launch;
+    }
+
+    /** One line with the time of every reached stage. */
+    public static synchronized String summary() {
+        StringBuilder sb = new StringBuilder("Startup:");
+        for (Stage s : Stage.values()) {
+            if (s == Stage.LAUNCH) continue;
+            long ms = elapsedMs(s);
+            if (ms != NOT_REACHED) sb.append(String.format(Locale.US, " %s %d ms,", s.label, ms));
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    // ---------------------------------------------------------
+    // VEHICLE SOCKET
+    // ---------------------------------------------------------
+
+    /**
+     * Open the vehicle socket on network in the background. Called from
+     * onAvailable; later calls while one is open or pending are ignored.
+     */
+    public static void preconnect(Network network, String host, int port) {
+        synchronized (StartupPipeline.class) {
+            if (preconnecting || preconnected != null) return;
+            preconnecting = true;
+        }
+        new Thread(() -> {
+            SocketChannel ch = null;
+            try {
+                ch = SocketChannel.open();
+                network.bindSocket(ch.socket());
+                ch.socket().connect(new InetSocketAddress(host, port), PRECONNECT_TIMEOUT_MS);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                mark(Stage.SOCKET_CONNECTED);
+            } catch (IOException e) {
+                Log.w(TAG, "Pre-connect to " + host + ":" + port + " failed: " + e.getMessage());
+                closeQuietly(ch);
+                ch = null;
+            }
+            complete(ch);
+        }, "Startup-preconnect").start();
+    }
+
+    private static void complete(SocketChannel ch) {
+        Consumer<SocketChannel> receiver;
+        synchronized (StartupPipeline.class) {
+            preconnecting = false;
+            receiver = claimant;
+            claimant = null;
+            if (receiver == null) {
+                preconnected = ch;
+                return;
+            }
+        }
+        receiver.accept(ch);
+    }
+
+    /**
+     * Hand the pre-opened socket to receiver, on whichever thread has it
+     * ready: right away if the connect already finished, or from the connect
+     * thread when it does. receiver gets null if there is no socket to take
+     * and should then connect by itself.
+     */
+    public static void claimConnection(Consumer<SocketChannel> receiver) {
+        SocketChannel ch;
+        synchronized (StartupPipeline.class) {
+            if (preconnecting) {
+                claimant = receiver;
+                return;
+            }
+            ch = preconnected;
+            preconnected = null;
+        }
+        receiver.accept(ch);
+    }
+
+    // ---------------------------------------------------------
+    // NETWORK REQUEST
+    // ---------------------------------------------------------
+
+    /** Keep the vehicle network request alive until {@link #release}. */
+    public static synchronized void holdNetwork(ConnectivityManager cm,
+                                                ConnectivityManager.NetworkCallback callback) {
+        connectivityManager = cm;
+        networkCallback = callback;
+    }
+
+    /**
+     * End the launch: drop the network request, unbind the process and close
+     * a socket nobody claimed. A pending claim is cancelled.
+     */
+    public static void release() {
+        ConnectivityManager cm;
+        ConnectivityManager.NetworkCallback callback;
+        SocketChannel unclaimed;
+        synchronized (StartupPipeline.class) {
+            cm = connectivityManager;
+            callback = networkCallback;
+            connectivityManager = null;
+            networkCallback = null;
+            unclaimed = preconnected;
+            preconnected = null;
+            // a connect still in flight closes its own socket
+            if (preconnecting) claimant = StartupPipeline::closeQuietly;
+        }
+        closeQuietly(unclaimed);
+        if (cm != null && callback != null) {
+            try {
+                cm.unregisterNetworkCallback(callback);
+            } catch (Exception e) {
+                Log.e(TAG, "Error unregistering callback", e);
+            }
+            cm.bindProcessToNetwork(null);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.mathsya_v_01;
+
+/**
+ * Smooths and shapes joystick input: a per-axis filter on the stick position,
+ * then a radial dead-zone and an expo curve on the result.
+ *
+ * The filter is one of
+ * <ul>
+ *   <li>pass-through;</li>
+ *   <li>a first-order low-pass with a fixed cutoff;</li>
+ *   <li>a One-Euro filter: a low-pass whose cutoff rises with the stick's
+ *       speed, so a resting finger's jitter is smoothed away while a fast
+ *       move passes with little lag.</li>
+ * </ul>
+ * Samples carry their own timestamps, so the filter behaves the same whether
+ * they come one per event or batched as historical samples.
+ *
+ * Positions are normalised to the unit disc (x right, y down). Allocation-free;
+ * not thread-safe.
+ */
+public final class StickFilter {
+
+    public enum Mode { PASS_THROUGH, LOW_PASS, ONE_EURO }
+
+    // Samples closer together than this (or out of order) count as this far apart
+    private static final double MIN_DT_S = 0.001;
+
+    private Mode mode = Mode.ONE_EURO;
+    private double minCutoffHz = 1.5;
+    private double beta = 1.0;
+    private double derivativeCutoffHz = 1.0;
+    private double deadZone = 0.05;
+    private double expo = 0.3;
+
+    private boolean primed;
+    private long lastTimeMs;
+    // per axis: 0 = x, 1 = y
+    private final double[] value = new double[2];
+    private final double[] speed = new double[2];
+
+    private double filteredX, filteredY;
+    private double shapedX, shapedY;
+
+    // ---------------------------------------------------------
+    // CONFIGURATION
+    // ---------------------------------------------------------
+
+    /** No smoothing; dead-zone and expo still apply. */
+    public void setPassThrough() {
+        mode = Mode.PASS_THROUGH;
+        reset();
+    }
+
+    /** First-order low-pass at a fixed cutoff. */
+    public void setLowPass(double cutoffHz) {
+        mode = Mode.LOW_PASS;
+        minCutoffHz = cutoffHz;
+        reset();
+    }
+
+    /**
+     * @param minCutoffHz        cutoff at rest; lower smooths jitter more
+     * @param beta               cutoff added per unit/s of stick speed; higher lags less on fast moves
+     * @param derivativeCutoffHz cutoff of the speed estimate itself
+     */
+    public void setOneEuro(double minCutoffHz, double beta, double derivativeCutoffHz) {
+        mode = Mode.ONE_EURO;
+        this.minCutoffHz = minCutoffHz;
+        this.beta = beta;
+        this.derivativeCutoffHz = derivativeCutoffHz;
+        reset();
+    }
+
+    /** Deflections up to this fraction of full travel read as centred. */
+    public void setDeadZone(double deadZone) {
+        this.deadZone = Math.max(0, Math.min(0.9, deadZone));
+    }
+
+    /** 0 for a linear response, up to 1 for a cubic one (finer control near centre). */
+    public void setExpo(double expo) {
+        this.expo = Math.max(0, Math.min(1, expo));
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    // ---------------------------------------------------------
+    // SAMPLES
+    // ---------------------------------------------------------
+
+    /** Forget the history, e.g. when the finger goes down or up. */
+    public void reset() {
+        primed = false;
+        filteredX = filteredY = 0;
+        shapedX = shapedY = 0;
+    }
+
+    /** Feed one sample; x and y are clamped to the unit disc first. */
+    public void update(double x, double y, long timeMs) {
+        double m = Math.sqrt(x * x + y * y);
+        if (m > 1) {
+            x /= m;
+            y /= m;
+        }
+        if (!primed || mode == Mode.PASS_THROUGH) {
+            value[0] = x;
+            value[1] = y;
+            speed[0] = speed[1] = 0;
+            primed = true;
+        } else {
+            double dt = Math.max(MIN_DT_S, (timeMs - lastTimeMs) / 1000.0);
+            filterAxis(0, x, dt);
+            filterAxis(1, y, dt);
+        }
+        lastTimeMs = timeMs;
+        filteredX = value[0];
+        filteredY = value[1];
+        shape();
+    }
+
+    private void filterAxis(int axis, double raw, double dt) {
+        double cutoff = minCutoffHz;
+        if (mode == Mode.ONE_EURO) {
+            double rawSpeed = (raw - value[axis]) / dt;
+            speed[axis] += alpha(derivativeCutoffHz, dt) * (rawSpeed - speed[axis]);
+            cutoff += beta * Math.abs(speed[axis]);
+        }
+        value[axis] += alpha(cutoff, dt) * (raw - value[axis]);
+    }
+
+    private static double alpha(double cutoffHz, double dt) {
+        double tau = 1 / (2 * Math.PI * cutoffHz);
+        return 1 / (1 + tau / dt);
+    }
+
+    // Radial, so the dead-zone is round and the direction is kept
+    private void shape() {
+        double m = Math.sqrt(filteredX * filteredX + filteredY * filteredY);
+        if (m <= deadZone) {
+            shapedX = shapedY = 0;
+            return;
+        }
+        double r = Math.min(1, (m - deadZone) / (1 - deadZone));
+        r = (1 - expo) * r + expo * r * r * r;
+        shapedX = filteredX * r / m;
+        shapedY = filteredY * r / m;
+    }
+
+    // ---------------------------------------------------------
+    // OUTPUT
+    // ---------------------------------------------------------
+
+    /** Smoothed position, before dead-zone and expo; where the handle is drawn. */
+    public double filteredX() {
+        return filteredX;
+    }
+
+    public double filteredY() {
+        return filteredY;
+    }
+
+    /** Smoothed and shaped position; what is commanded. */
+    public double x() {
+        return shapedX;
+    }
+
+    public double y() {
+        return shapedY;
+    }
+}
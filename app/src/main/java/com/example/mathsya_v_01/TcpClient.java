@@ -4,32 +4,110 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class TcpClient {
 
     public interface TcpCallback {
-        void onMessageReceived(String message);
         void onStatusChanged(String status);
+
+        /**
+         * Optional String adapter, on the main thread: text frames the
+         * {@link BinaryMessageCallback} did not consume, decoded as UTF-8.
+         */
+        default void onMessageReceived(String message) {}
+
+        /**
+         * Main thread, before the status change: the heartbeat watchdog found
+         * the link silent for silentMs. The session is dropped and reconnects.
+         */
+        default void onLinkDead(long silentMs) {}
+
+        /**
+         * Main thread, at most once per display frame: the text messages that
+         * arrived since the last frame, oldest first. The list is reused after
+         * the call. Defaults to one {@link #onMessageReceived} per message.
+         */
+        default void onMessagesReceived(List<String> batch, int dropped) {
+            for (int i = 0; i < batch.size(); i++) onMessageReceived(batch.get(i));
+        }
     }
 
+    public enum State { IDLE, CONNECTING, CONNECTED, BACKOFF, CLOSED }
+
     private static final String TAG = "TcpClient";
 
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    // Outbound ring: 64 frames of up to 512 bytes each
+    private static final int SEND_QUEUE_FRAMES = 64;
+    private static final int SEND_SLOT_BYTES = 512;
+    private static final int RECV_BUFFER_BYTES = 64 * 1024;
+    // Text messages handed to the main thread per frame
+    private static final int INBOUND_PER_FRAME = 256;
+
+    // Reconnect: first retry at once, then 200 ms doubling up to 10 s, with jitter
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    // The ended session's writer only has to notice its interrupt or closed socket
+    private static final long WRITER_JOIN_MS = 1000;
+    private static final long BACKOFF_BASE_MS = 200;
+    private static final long BACKOFF_MAX_MS = 10_000;
+
+    // Sent first on a resumed session; the app re-sends its state after its hello
+    private static final String RESUME_HELLO = "{\"resume\":1}";
+
+    // All connect attempts run here, one at a time; shut down by close()
+    private final ScheduledExecutorService connector = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "TcpClient-connect");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Connection state; written under the client's lock
+    private volatile State state = State.IDLE;
+    private volatile SocketChannel channel;
+    private int failures = 0;
+    private ScheduledFuture<?> pendingAttempt;
+    private Thread writerThread;
+    private Thread retiredWriter;  // the ended session's writer, until it is joined
+    private boolean resumable = false;  // a session existed, so a new one resumes it
+    // The backoff only resets once the vehicle has answered on a session
+    private volatile boolean sessionHeard = false;
+
+    private volatile FrameReader.Mode framingMode = FrameReader.Mode.LINES;
+    private volatile BinaryMessageCallback binaryCallback;
+    private volatile FlightRecorder recorder;
+    private volatile FrameCoalescer<String> inbound =
+            new FrameCoalescer<>(INBOUND_PER_FRAME, null, this::deliverBatch);
+
+    private final OutboundFrameRing sendQueue =
+            new OutboundFrameRing(SEND_QUEUE_FRAMES, SEND_SLOT_BYTES);
+    // Half-open sockets can look alive for minutes; the watchdog notices in ~300 ms
+    // once the vehicle has shown it answers pings, in seconds until then
+    private final LinkWatchdog watchdog = new LinkWatchdog(
+            n -> send(LinkWatchdog.ping(n)), this::onLinkDead);
+
+    // Resume intent, not bytes: frames encoded for the old session's codec must
+    // not reach a new one before its hello is answered. Guarded by resumeLock.
+    // Arm changes supersede each other, so only the latest unacked one counts.
+    private final Object resumeLock = new Object();
+    private boolean commandUnacked = false;
+    private int unackedSequence;
+    private boolean resumePending = false;
 
     private String host;
     private int port;
 
     private TcpCallback callback;
-    private boolean connected = false;
-    private boolean manualClose = false;
 
     private Handler mainHandler = new Handler(Looper.getMainLooper());
 
@@ -40,94 +118,330 @@ public class TcpClient {
     // ---------------------------------------------------------
     // CONNECT
     // ---------------------------------------------------------
-    public void connect(String host, int port) {
+
+    /**
+     * Connect to host:port, or retry right away if waiting in backoff.
+     * Ignored while an attempt or a session to the same target is underway,
+     * so a manual reconnect never races the automatic one. Ignored after
+     * {@link #close}.
+     */
+    public synchronized void connect(String host, int port) {
+        if (state == State.CLOSED) return;
+        boolean sameTarget = host.equals(this.host) && port == this.port;
         this.host = host;
         this.port = port;
-        manualClose = false;
-
-        new Thread(() -> {
-            try {
-                callbackStatus("Connecting...");
-                socket = new Socket();
-                socket.connect(new InetSocketAddress(host, port), 5000);
+        if (sameTarget && (state == State.CONNECTING || state == State.CONNECTED)) return;
+        if (state == State.CONNECTED) endSession();
+        cancelPendingAttempt();
+        failures = 0;
+        scheduleAttempt(0);
+    }
 
-                out = new PrintWriter(socket.getOutputStream(), true);
-                in  = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    /**
+     * Take over a socket that is already connected to host:port (e.g. opened
+     * by {@link StartupPipeline} during launch), skipping the connect. If it
+     * is no longer usable this falls back to {@link #connect}. Reconnects
+     * later go to host:port as usual.
+     */
+    public void adopt(SocketChannel ch, String host, int port) {
+        synchronized (this) {
+            this.host = host;
+            this.port = port;
+            if (state == State.CONNECTED || state == State.CLOSED) {
+                closeQuietly(ch);
+                return;
+            }
+            cancelPendingAttempt();
+            state = State.CONNECTING;
+        }
+        try {
+            if (!ch.isConnected()) throw new IOException("not connected");
+            startSession(ch, host, port);
+        } catch (IOException e) {
+            Log.w(TAG, "Handed-over socket unusable (" + e.getMessage() + "), connecting");
+            closeQuietly(ch);
+            synchronized (this) {
+                failures = 0;
+                scheduleAttempt(0);
+            }
+        }
+    }
 
-                connected = true;
-                callbackStatus("Connected");
+    public State getState() {
+        return state;
+    }
 
-                listenForMessages();
+    // Runs on the connector thread
+    private void attempt() {
+        String h;
+        int p;
+        synchronized (this) {
+            if (state == State.CLOSED || state == State.CONNECTED) return;
+            state = State.CONNECTING;
+            pendingAttempt = null;
+            h = host;
+            p = port;
+        }
+        callbackStatus("Connecting...");
+        SocketChannel ch = null;
+        try {
+            ch = SocketChannel.open();
+            ch.socket().connect(new InetSocketAddress(h, p), CONNECT_TIMEOUT_MS);
+            startSession(ch, h, p);
+        } catch (IOException e) {
+            closeQuietly(ch);
+            if (state == State.CLOSED) return;  // close() interrupted the connect
+            callbackStatus("Connection Failed: " + e.getMessage());
+            scheduleRetry();
+        }
+    }
 
-            } catch (Exception e) {
-                connected = false;
-                callbackStatus("Connection Failed: " + e.getMessage());
-                attemptReconnect();
+    private void startSession(SocketChannel ch, String h, int p) throws IOException {
+        // Control frames are tiny; never let Nagle hold them back
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        awaitRetiredWriter();
+        synchronized (this) {
+            // closed, retargeted or already connected meanwhile: this socket lost
+            if (state != State.CONNECTING || !h.equals(host) || p != port) {
+                closeQuietly(ch);
+                return;
             }
-        }).start();
+            channel = ch;
+            sendQueue.clear();
+            sendQueue.setFramed(framingMode == FrameReader.Mode.FRAMED);
+            if (resumable) queueResume();
+            resumable = true;
+            startWriter(ch);
+            sessionHeard = false;
+            state = State.CONNECTED;
+            watchdog.start();
+        }
+        callbackStatus("Connected");
+        listenForMessages(ch);
     }
 
     // ---------------------------------------------------------
     // AUTO RECONNECT
     // ---------------------------------------------------------
-    private void attemptReconnect() {
-        if (manualClose) return;
 
-        callbackStatus("Reconnecting in 3 sec...");
-        mainHandler.postDelayed(() -> connect(host, port), 3000);
+    // Watchdog thread
+    private void onLinkDead(long silentMs) {
+        SocketChannel ch = channel;
+        Log.w(TAG, "Link dead: nothing heard for " + silentMs + " ms");
+        mainHandler.post(() -> callback.onLinkDead(silentMs));
+        onSessionLost(ch, "Link dead");
+    }
+
+    // A reader or writer saw the session fail. Only the first report counts.
+    private void onSessionLost(SocketChannel ch, String status) {
+        synchronized (this) {
+            if (ch != channel || state != State.CONNECTED) return;
+            endSession();
+        }
+        callbackStatus(status);
+        scheduleRetry();
+    }
+
+    private synchronized void scheduleRetry() {
+        if (state == State.CLOSED || state == State.CONNECTED) return;
+        failures++;
+        long delay = backoffDelayMs(failures);
+        if (delay > 0) callbackStatus("Reconnecting in " + delay + " ms...");
+        scheduleAttempt(delay);
+    }
+
+    /** 0 for the first failure, then 200 ms doubling to 10 s, jittered to 50-100%. */
+    static long backoffDelayMs(int failures) {
+        if (failures <= 1) return 0;
+        long ceiling = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(failures - 2, 16));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    // Holding the lock
+    private void scheduleAttempt(long delayMs) {
+        if (state == State.CLOSED) return;  // the connector is shut down
+        state = delayMs == 0 ? State.CONNECTING : State.BACKOFF;
+        pendingAttempt = connector.schedule(this::attempt, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Holding the lock
+    private void cancelPendingAttempt() {
+        if (pendingAttempt != null) pendingAttempt.cancel(false);
+        pendingAttempt = null;
+    }
+
+    // Holding the lock. Closing the channel also ends the reader.
+    private void endSession() {
+        SocketChannel ch = channel;
+        channel = null;
+        state = State.IDLE;
+        watchdog.stop();
+        if (writerThread != null) {
+            writerThread.interrupt();
+            retiredWriter = writerThread;
+        }
+        writerThread = null;
+        closeQuietly(ch);
+    }
+
+    // Not holding the lock (the old writer may need it to report its failure).
+    // The sessions share the ring: until the old writer is gone it could release
+    // slots a second time or take the new session's frames to the old socket.
+    private void awaitRetiredWriter() throws IOException {
+        Thread old;
+        synchronized (this) {
+            old = retiredWriter;
+            retiredWriter = null;
+        }
+        if (old == null || old == Thread.currentThread()) return;
+        try {
+            old.join(WRITER_JOIN_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (old.isAlive()) {
+            synchronized (this) {
+                retiredWriter = old;  // try again on the next attempt
+            }
+            throw new IOException("previous writer still running");
+        }
     }
 
     // ---------------------------------------------------------
     // MESSAGE RECEIVE LOOP
     // ---------------------------------------------------------
-    private void listenForMessages() {
+    private void listenForMessages(SocketChannel ch) {
         new Thread(() -> {
+            ByteBuffer buffer = BufferPool.acquire(RECV_BUFFER_BYTES);
             try {
-                String line;
-                while (!socket.isClosed() && (line = in.readLine()) != null) {
-                    String finalLine = line;
-                    mainHandler.post(() -> callback.onMessageReceived(finalLine));
-                }
+                new FrameReader(framingMode, buffer).readLoop(ch, this::dispatchFrame);
             } catch (IOException e) {
-                if (!manualClose) {
-                    callbackStatus("Disconnected");
-                    connected = false;
-                    attemptReconnect();
+                onSessionLost(ch, "Disconnected");
+            } finally {
+                BufferPool.release(buffer);
+            }
+        }, "TcpClient-reader").start();
+    }
+
+    // Runs on the reader thread. Frames go to the binary callback untouched;
+    // text frames it does not consume fall back to the String callback on main.
+    private void dispatchFrame(int type, ByteBuffer payload) {
+        watchdog.heard();
+        if (!sessionHeard) onFirstFrame();
+        FlightRecorder rec = recorder;
+        if (rec != null) rec.record(FlightRecorder.DIR_INBOUND, FlightRecorder.CHANNEL_TCP, type, payload);
+        if (type == FrameReader.TYPE_TEXT && LinkWatchdog.isPong(payload)) {
+            watchdog.confirm();
+            return;
+        }
+        deliverFrame(type, payload);
+    }
+
+    private synchronized void onFirstFrame() {
+        sessionHeard = true;
+        failures = 0;
+    }
+
+    private void deliverFrame(int type, ByteBuffer payload) {
+        BinaryMessageCallback binary = binaryCallback;
+        if (binary != null) {
+            int pos = payload.position();
+            boolean consumed = binary.onBinaryMessage(type, payload);
+            if (consumed) return;
+            payload.position(pos);
+        }
+        if (type == FrameReader.TYPE_TEXT) {
+            inbound.offer(FrameReader.decodeText(payload));
+        }
+    }
+
+    private void deliverBatch(List<String> batch, int dropped) {
+        if (dropped > 0) Log.w(TAG, dropped + " inbound messages dropped, UI is behind");
+        callback.onMessagesReceived(batch, dropped);
+    }
+
+    // ---------------------------------------------------------
+    // WRITER THREAD
+    // ---------------------------------------------------------
+    // Holding the lock
+    private void startWriter(SocketChannel ch) {
+        writerThread = new Thread(() -> writeLoop(ch), "TcpClient-writer");
+        writerThread.start();
+    }
+
+    // One thread per connection drains everything pending into one gathering write
+    private void writeLoop(SocketChannel ch) {
+        while (!Thread.currentThread().isInterrupted()) {
+            int n;
+            try {
+                n = sendQueue.awaitBatch();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            ByteBuffer[] batch = sendQueue.batch();
+            long written = 0;
+            try {
+                while (batch[n - 1].hasRemaining()) {
+                    written += ch.write(batch, 0, n);
                 }
+            } catch (IOException e) {
+                sendQueue.release(n, written);
+                onSessionLost(ch, "Send failed: " + e.getMessage());
+                return;
             }
-        }).start();
+            sendQueue.release(n, written);
+        }
     }
 
     // ---------------------------------------------------------
     // SEND
     // ---------------------------------------------------------
     public void send(String msg) {
-        if (!connected || out == null) return;
+        if (state != State.CONNECTED) return;
+        FlightRecorder rec = recorder;
+        if (rec != null) rec.record(FlightRecorder.DIR_OUTBOUND, FlightRecorder.CHANNEL_TCP, msg);
+        sendQueue.offerText(msg);
+    }
 
-        new Thread(() -> {
-            try {
-                out.println(msg);
-            } catch (Exception e) {
-                callbackStatus("Send failed: " + e.getMessage());
-                connected = false;
-                attemptReconnect();
-            }
-        }).start();
+    /**
+     * Send a binary control frame (e.g. from {@link ControlFrameCodec}). The bytes
+     * between position and limit are copied, so the caller may reuse the buffer.
+     */
+    public void send(ByteBuffer frame) {
+        send(FrameReader.TYPE_CONTROL, frame);
+    }
+
+    /** Send a typed binary frame; the type is only put on the wire in framed mode. */
+    public void send(int type, ByteBuffer frame) {
+        if (state != State.CONNECTED) return;
+        FlightRecorder rec = recorder;
+        if (rec != null) rec.record(FlightRecorder.DIR_OUTBOUND, FlightRecorder.CHANNEL_TCP, type, frame);
+        sendQueue.offer(type, frame);
     }
 
     // ---------------------------------------------------------
     // CLOSE
     // ---------------------------------------------------------
+    /**
+     * End the session and stop reconnecting, for good: the connector thread
+     * exits, and a closed client ignores {@link #connect}. Create a new one to
+     * connect again.
+     */
     public void close() {
-        manualClose = true;
-        connected = false;
-
-        try {
-            if (out != null) out.close();
-            if (in  != null) in.close();
-            if (socket != null) socket.close();
-        } catch (IOException ignored) {}
-
+        synchronized (this) {
+            cancelPendingAttempt();
+            endSession();
+            state = State.CLOSED;
+            // an attempt already connecting sees CLOSED when it takes the lock
+            connector.shutdownNow();
+            // the next connect starts a new session, nothing to resume
+            resumable = false;
+        }
+        synchronized (resumeLock) {
+            commandUnacked = false;
+            resumePending = false;
+        }
         callbackStatus("Closed");
     }
 
@@ -139,7 +453,162 @@ public class TcpClient {
         Log.d(TAG, s);
     }
 
+    private static void closeQuietly(SocketChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {}
+    }
+
     public boolean isConnected() {
-        return connected;
+        return state == State.CONNECTED;
+    }
+
+    // ---------------------------------------------------------
+    // SESSION RESUME
+    // ---------------------------------------------------------
+
+    /**
+     * Send a frame that must arrive (e.g. an arm change). Until
+     * {@link #acknowledge} sees its sequence or a newer command replaces it,
+     * {@link #hasUnacknowledgedCommand} tells a resumed session to send the
+     * current state as a command again.
+     */
+    public void sendCommand(int sequence, String json) {
+        remember(sequence);
+        send(json);
+    }
+
+    /** Binary form of {@link #sendCommand(int, String)}. */
+    public void sendCommand(int sequence, ByteBuffer frame) {
+        remember(sequence);
+        send(frame);
+    }
+
+    // "arm" then "disarm" unacked must not come back as arm, disarm: only the latest counts
+    private void remember(int sequence) {
+        synchronized (resumeLock) {
+            commandUnacked = true;
+            unackedSequence = sequence;
+        }
+    }
+
+    /** The vehicle confirmed this sequence; it no longer needs sending again. */
+    public void acknowledge(int sequence) {
+        synchronized (resumeLock) {
+            if (commandUnacked && unackedSequence == sequence) commandUnacked = false;
+        }
+    }
+
+    /** True while the latest command has not been acknowledged. */
+    public boolean hasUnacknowledgedCommand() {
+        synchronized (resumeLock) {
+            return commandUnacked;
+        }
+    }
+
+    /**
+     * True once per resumed session. Call it when the session's hello has
+     * been answered: the app then sends its current control state, encoded
+     * for the codec just agreed, and as a command if
+     * {@link #hasUnacknowledgedCommand}.
+     */
+    public boolean takeResume() {
+        synchronized (resumeLock) {
+            boolean pending = resumePending;
+            resumePending = false;
+            return pending;
+        }
+    }
+
+    // Holding the lock, before the writer starts. Only the codec-free resume
+    // line goes out now; the state follows once the app has its hello reply.
+    private void queueResume() {
+        sendQueue.offerText(RESUME_HELLO);
+        synchronized (resumeLock) {
+            resumePending = true;
+        }
+        Log.d(TAG, "Resuming session" + (hasUnacknowledgedCommand() ? ", command unacknowledged" : ""));
+    }
+
+    // ---------------------------------------------------------
+    // FRAMING
+    // ---------------------------------------------------------
+
+    /**
+     * Ping after intervalMs of silence and declare the link dead after
+     * missedBeats intervals; applies from the next session, once the vehicle
+     * has answered a ping or {@link #confirmHeartbeat} was called.
+     */
+    public void setHeartbeat(long intervalMs, int missedBeats) {
+        watchdog.setInterval(intervalMs, missedBeats);
+    }
+
+    /** The session's hello reply advertised heartbeats: use the fast deadline now. */
+    public void confirmHeartbeat() {
+        watchdog.confirm();
+    }
+
+    /**
+     * Choose newline-delimited text (default, compatible with the JSON vehicle
+     * firmware) or length-prefixed frames. Takes effect on the next connect.
+     */
+    public void setFramingMode(FrameReader.Mode mode) {
+        this.framingMode = mode;
+    }
+
+    /** Receive every inbound frame as bytes on the reader thread; null to stop. */
+    public void setBinaryCallback(BinaryMessageCallback callback) {
+        this.binaryCallback = callback;
+    }
+
+    /**
+     * How text messages reach {@link TcpCallback} on the main thread: at most
+     * maxPerFrame per display frame, and with topicOf only the newest message
+     * per topic (null keeps them all). Messages still staged are lost.
+     */
+    public void setInboundDelivery(int maxPerFrame, Function<String, ?> topicOf) {
+        this.inbound = new FrameCoalescer<>(maxPerFrame, topicOf, this::deliverBatch);
+    }
+
+    // ---------------------------------------------------------
+    // FLIGHT RECORDER
+    // ---------------------------------------------------------
+
+    /** Record every frame sent and received on this client; null to stop. */
+    public void setRecorder(FlightRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Listener that feeds recorded inbound TCP frames through the same
+     * BinaryMessageCallback / TcpCallback path as live traffic.
+     */
+    public FlightLogReader.Listener replayListener() {
+        return (ts, direction, channel, type, payload) -> {
+            if (direction == FlightRecorder.DIR_INBOUND && channel == FlightRecorder.CHANNEL_TCP) {
+                deliverFrame(type, payload);
+            }
+        };
+    }
+
+    // ---------------------------------------------------------
+    // SEND METRICS
+    // ---------------------------------------------------------
+    public int getQueueDepth() {
+        return sendQueue.depth();
+    }
+
+    public long getBytesWritten() {
+        return sendQueue.bytesWritten();
+    }
+
+    public long getFramesDropped() {
+        return sendQueue.framesDropped();
+    }
+
+    /** Inbound text messages the UI did not get to (per-frame cap). */
+    public long getInboundDropped() {
+        return inbound.droppedCount();
     }
 }
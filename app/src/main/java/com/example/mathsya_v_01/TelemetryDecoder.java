@@ -0,0 +1,299 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pulls the known telemetry fields straight out of a JSON text frame, without
+ * building a JSONObject or any Strings.
+ *
+ * Recognised keys (ASCII case-insensitive): battery, armed, depth, pH, DO, Temp,
+ * Turbidity, Ammonia, lat, lon. They may sit at the top level or inside a nested object
+ * such as {"telemetry": {...}}; everything else is skipped. Numbers may also be
+ * sent as quoted strings.
+ *
+ * Meant to run on the network thread. One instance per thread; not thread-safe.
+ */
+public final class TelemetryDecoder {
+
+    private static final byte[][] KEYS = {
+            ascii("battery"), ascii("armed"), ascii("depth"), ascii("pH"),
+            ascii("DO"), ascii("Temp"), ascii("Turbidity"), ascii("Ammonia"),
+            ascii("lat"), ascii("lon")
+    };
+    private static final int[] FIELDS = {
+            TelemetrySnapshot.F_BATTERY, TelemetrySnapshot.F_ARMED, TelemetrySnapshot.F_DEPTH,
+            TelemetrySnapshot.F_PH, TelemetrySnapshot.F_DO, TelemetrySnapshot.F_TEMP,
+            TelemetrySnapshot.F_TURBIDITY, TelemetrySnapshot.F_AMMONIA,
+            TelemetrySnapshot.F_LAT, TelemetrySnapshot.F_LON
+    };
+    private static final int MAX_DEPTH = 4;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ByteBuffer buf;
+    private int pos;
+    private int end;
+
+    // Values are staged and only applied once the whole message parsed cleanly
+    private final double[] staged = new double[KEYS.length];
+    private int stagedMask;
+
+    /**
+     * Decode one message between src's position and limit (src is not moved).
+     *
+     * @return true if the message was well-formed and carried at least one known
+     * field; only then is out updated.
+     */
+    public boolean decode(ByteBuffer src, TelemetrySnapshot out) {
+        buf = src;
+        pos = src.position();
+        end = src.limit();
+        stagedMask = 0;
+        try {
+            skipWhitespace();
+            if (!parseObject(0)) return false;
+        } finally {
+            buf = null;
+        }
+        if (stagedMask == 0) return false;
+
+        out.updated = 0;
+        for (int i = 0; i < KEYS.length; i++) {
+            if ((stagedMask & (1 << i)) == 0) continue;
+            double v = staged[i];
+            switch (FIELDS[i]) {
+                case TelemetrySnapshot.F_BATTERY: out.battery = (int) v; break;
+                case TelemetrySnapshot.F_ARMED: out.armed = v != 0; break;
+                case TelemetrySnapshot.F_DEPTH: out.depth = v; break;
+                case TelemetrySnapshot.F_PH: out.ph = v; break;
+                case TelemetrySnapshot.F_DO: out.dissolvedOxygen = v; break;
+                case TelemetrySnapshot.F_TEMP: out.temperature = v; break;
+                case TelemetrySnapshot.F_TURBIDITY: out.turbidity = v; break;
+                case TelemetrySnapshot.F_AMMONIA: out.ammonia = v; break;
+                case TelemetrySnapshot.F_LAT: out.latitude = v; break;
+                case TelemetrySnapshot.F_LON: out.longitude = v; break;
+            }
+            out.fields |= FIELDS[i];
+            out.updated |= FIELDS[i];
+        }
+        out.updateCount++;
+        out.receivedAtNanos = System.nanoTime();
+        return true;
+    }
+
+    // ---------------------------------------------------------
+    // PARSER
+    // ---------------------------------------------------------
+    private boolean parseObject(int depth) {
+        if (!consume('{')) return false;
+        skipWhitespace();
+        if (consume('}')) return true;
+
+        while (pos < end) {
+            skipWhitespace();
+            if (peek() != '"') return false;
+            int keyStart = pos + 1;
+            if (!skipString()) return false;
+            int keyEnd = pos - 1;
+
+            skipWhitespace();
+            if (!consume(':')) return false;
+            skipWhitespace();
+
+            int key = matchKey(keyStart, keyEnd);
+            if (key >= 0) {
+                if (!parseKnownValue(key)) return false;
+            } else if (peek() == '{' && depth < MAX_DEPTH) {
+                if (!parseObject(depth + 1)) return false;
+            } else if (!skipValue()) {
+                return false;
+            }
+
+            skipWhitespace();
+            if (consume(',')) continue;
+            return consume('}');
+        }
+        return false;
+    }
+
+    private boolean parseKnownValue(int key) {
+        int c = peek();
+        if (c == 't' || c == 'f') {
+            boolean v = c == 't';
+            if (!skipLiteral()) return false;
+            stage(key, v ? 1 : 0);
+            return true;
+        }
+        if (c == 'n') return skipLiteral();
+        if (c == '"') {
+            // number sent as a string, e.g. "8.1"
+            int save = pos++;
+            int savedMask = stagedMask;
+            if (pos < end && isNumberStart(peek()) && parseNumber(key) && peek() == '"') {
+                pos++;
+                return true;
+            }
+            pos = save;
+            stagedMask = savedMask;
+            return skipString();
+        }
+        if (isNumberStart(c)) return parseNumber(key);
+        return skipValue();
+    }
+
+    private boolean parseNumber(int key) {
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int c;
+        while (pos < end && (c = peek()) >= '0' && c <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+            } else {
+                scale++;
+            }
+            pos++;
+        }
+        if (pos < end && peek() == '.') {
+            pos++;
+            while (pos < end && (c = peek()) >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    scale--;
+                }
+                pos++;
+            }
+        }
+        if (pos < end && (peek() == 'e' || peek() == 'E')) {
+            pos++;
+            boolean expNegative = false;
+            if (peek() == '+' || peek() == '-') {
+                expNegative = peek() == '-';
+                pos++;
+            }
+            int exp = 0;
+            while (pos < end && (c = peek()) >= '0' && c <= '9') {
+                exp = Math.min(exp * 10 + (c - '0'), 400);
+                pos++;
+            }
+            scale += expNegative ? -exp : exp;
+        }
+        if (digits == 0) return false;
+
+        double v = mantissa;
+        if (scale > 0) v = scale < POW10.length ? v * POW10[scale] : v * Math.pow(10, scale);
+        else if (scale < 0) v = -scale < POW10.length ? v / POW10[-scale] : v / Math.pow(10, -scale);
+        stage(key, negative ? -v : v);
+        return true;
+    }
+
+    private void stage(int key, double value) {
+        staged[key] = value;
+        stagedMask |= 1 << key;
+    }
+
+    private int matchKey(int from, int to) {
+        int len = to - from;
+        for (int k = 0; k < KEYS.length; k++) {
+            byte[] name = KEYS[k];
+            if (name.length != len) continue;
+            int i = 0;
+            while (i < len && lower(buf.get(from + i)) == lower(name[i])) i++;
+            if (i == len) return k;
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------
+    // SKIPPING
+    // ---------------------------------------------------------
+    private boolean skipValue() {
+        int c = peek();
+        if (c == '"') return skipString();
+        if (c == '{' || c == '[') return skipContainer();
+        if (c == 't' || c == 'f' || c == 'n') return skipLiteral();
+        if (isNumberStart(c)) {
+            while (pos < end && isNumberChar(peek())) pos++;
+            return true;
+        }
+        return false;
+    }
+
+    // Leaves pos just after the closing quote
+    private boolean skipString() {
+        pos++;
+        while (pos < end) {
+            int c = buf.get(pos++);
+            if (c == '\\') pos++;
+            else if (c == '"') return true;
+        }
+        return false;
+    }
+
+    private boolean skipContainer() {
+        int depth = 0;
+        while (pos < end) {
+            int c = peek();
+            if (c == '"') {
+                if (!skipString()) return false;
+                continue;
+            }
+            pos++;
+            if (c == '{' || c == '[') depth++;
+            else if ((c == '}' || c == ']') && --depth == 0) return true;
+        }
+        return false;
+    }
+
+    private boolean skipLiteral() {
+        while (pos < end && peek() >= 'a' && peek() <= 'z') pos++;
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            int c = peek();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+            pos++;
+        }
+    }
+
+    private boolean consume(char c) {
+        if (pos < end && peek() == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private int peek() {
+        return pos < end ? buf.get(pos) : -1;
+    }
+
+    private static boolean isNumberStart(int c) {
+        return c == '-' || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isNumberChar(int c) {
+        return isNumberStart(c) || c == '.' || c == 'e' || c == 'E' || c == '+';
+    }
+
+    private static int lower(int c) {
+        return (c >= 'A' && c <= 'Z') ? c + 32 : c;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.mathsya_v_01;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact telemetry encoding "tlm1": a full keyframe every few frames and,
+ * in between, delta frames that only carry the fields that changed.
+ *
+ * Every value is sent as a fixed-point integer (battery and armed as is,
+ * ammonia in thousandths, latitude and longitude in 1e-7 degrees, the other
+ * readings in hundredths). A keyframe
+ * carries the absolute values, a delta frame the difference to the previous
+ * frame, both as zig-zag varints, so an unchanged field costs nothing and a
+ * small change one byte. A typical frame is 5 to 10 bytes against about 130
+ * for the JSON line.
+ *
+ * <pre>
+ *   u8 0xA6 | u8 kind ('K' or 'D') | u8 seq | varint field mask | zig-zag varint per field
+ * </pre>
+ *
+ * The mask uses the {@link TelemetrySnapshot} F_* bits; values follow in bit
+ * order. A delta only applies on top of the frame with the previous seq, so
+ * after a gap or a reconnect the decoder skips deltas until the next keyframe.
+ *
+ * The frame is byte-stuffed so it never contains '\n' or '\r' and can travel
+ * as a line on the JSON stream: those bytes and the escape byte itself are
+ * sent as 0x7D followed by the byte XOR 0x20.
+ */
+public final class TelemetryDeltaCodec {
+
+    public static final String WIRE_NAME = "tlm1";
+    public static final byte MAGIC = (byte) 0xA6;
+
+    private static final int FIELDS = 10;
+    /** Largest encoded frame, every field present and every byte escaped. */
+    public static final int MAX_FRAME_BYTES = 2 * (5 + FIELDS * 10);
+
+    private static final int KIND_KEY = 'K';
+    private static final int KIND_DELTA = 'D';
+    private static final int ESC = 0x7D;
+    private static final int ESC_XOR = 0x20;
+
+    // Fixed-point scale per field, in F_* bit order
+    private static final int[] SCALE = {1, 1, 100, 100, 100, 100, 100, 1000, 10_000_000, 10_000_000};
+
+    private TelemetryDeltaCodec() {}
+
+    /** True if the bytes between position and limit start like a tlm1 frame. */
+    public static boolean isFrame(ByteBuffer b) {
+        return b.remaining() >= 4 && b.get(b.position()) == MAGIC;
+    }
+
+    private static long quantize(TelemetrySnapshot s, int i) {
+        switch (i) {
+            case 0: return s.battery;
+            case 1: return s.armed ? 1 : 0;
+            case 2: return Math.round(s.depth * SCALE[i]);
+            case 3: return Math.round(s.ph * SCALE[i]);
+            case 4: return Math.round(s.dissolvedOxygen * SCALE[i]);
+            case 5: return Math.round(s.temperature * SCALE[i]);
+            case 6: return Math.round(s.turbidity * SCALE[i]);
+            case 7: return Math.round(s.ammonia * SCALE[i]);
+            case 8: return Math.round(s.latitude * SCALE[i]);
+            default: return Math.round(s.longitude * SCALE[i]);
+        }
+    }
+
+    private static void apply(TelemetrySnapshot out, int i, long q) {
+        switch (i) {
+            case 0: out.battery = (int) q; break;
+            case 1: out.armed = q != 0; break;
+            case 2: out.depth = (double) q / SCALE[i]; break;
+            case 3: out.ph = (double) q / SCALE[i]; break;
+            case 4: out.dissolvedOxygen = (double) q / SCALE[i]; break;
+            case 5: out.temperature = (double) q / SCALE[i]; break;
+            case 6: out.turbidity = (double) q / SCALE[i]; break;
+            case 7: out.ammonia = (double) q / SCALE[i]; break;
+            case 8: out.latitude = (double) q / SCALE[i]; break;
+            default: out.longitude = (double) q / SCALE[i]; break;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // ENCODER (vehicle side; also used by the benchmarks)
+    // ---------------------------------------------------------
+
+    /** Turns successive snapshots into frames. Not thread-safe. */
+    public static final class Encoder {
+        private final int keyframeInterval;
+        // what the decoder holds after our last frame
+        private final long[] sent = new long[FIELDS];
+        private int seq = -1;
+        private int sinceKeyframe;
+        private boolean keyframeDue = true;
+
+        /** @param keyframeInterval frames from one keyframe to the next */
+        public Encoder(int keyframeInterval) {
+            this.keyframeInterval = Math.max(1, keyframeInterval);
+        }
+
+        /** Make the next frame a keyframe, e.g. for a new connection. */
+        public void requestKeyframe() {
+            keyframeDue = true;
+        }
+
+        /**
+         * Write the frame for s at dst's position, which needs
+         * {@link #MAX_FRAME_BYTES} free.
+         *
+         * @return bytes written; 0 if nothing changed and no keyframe is due
+         */
+        public int encode(TelemetrySnapshot s, ByteBuffer dst) {
+            boolean key = keyframeDue || sinceKeyframe >= keyframeInterval - 1;
+            int mask = 0;
+            for (int i = 0; i < FIELDS; i++) {
+                if ((s.fields & (1 << i)) == 0) continue;
+                if (key || quantize(s, i) != sent[i]) mask |= 1 << i;
+            }
+            if (mask == 0 && !key) return 0;
+
+            int start = dst.position();
+            seq = (seq + 1) & 0xFF;
+            dst.put(MAGIC);
+            putEscaped(dst, key ? KIND_KEY : KIND_DELTA);
+            putEscaped(dst, seq);
+            putVarint(dst, mask);
+            for (int i = 0; i < FIELDS; i++) {
+                long q = quantize(s, i);
+                if ((mask & (1 << i)) != 0) {
+                    putZigZag(dst, key ? q : q - sent[i]);
+                    sent[i] = q;
+                } else if (key) {
+                    sent[i] = 0;  // absent from the keyframe: the decoder starts it at 0
+                }
+            }
+            if (key) {
+                keyframeDue = false;
+                sinceKeyframe = 0;
+            } else {
+                sinceKeyframe++;
+            }
+            return dst.position() - start;
+        }
+
+        private static void putZigZag(ByteBuffer dst, long v) {
+            putVarint(dst, (v << 1) ^ (v >> 63));
+        }
+
+        private static void putVarint(ByteBuffer dst, long z) {
+            while ((z & ~0x7FL) != 0) {
+                putEscaped(dst, (int) ((z & 0x7F) | 0x80));
+                z >>>= 7;
+            }
+            putEscaped(dst, (int) z);
+        }
+
+        private static void putEscaped(ByteBuffer dst, int b) {
+            b &= 0xFF;
+            if (b == '\n' || b == '\r' || b == ESC) {
+                dst.put((byte) ESC);
+                b ^= ESC_XOR;
+            }
+            dst.put((byte) b);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // DECODER (phone side)
+    // ---------------------------------------------------------
+
+    /**
+     * Applies frames to a {@link TelemetrySnapshot} without allocating.
+     * Meant to run on the network thread; only {@link #reset} may be called
+     * from another thread.
+     */
+    public static final class Decoder {
+        private final long[] base = new long[FIELDS];
+        private final long[] staged = new long[FIELDS];
+        private boolean synced;
+        private int lastSeq;
+        private volatile boolean resetRequested;
+
+        private ByteBuffer buf;
+        private int pos;
+        private int end;
+        private boolean malformed;
+
+        private long keyframes;
+        private long deltas;
+        private long skipped;
+
+        /** Forget the current state; deltas are skipped until the next keyframe. */
+        public void reset() {
+            resetRequested = true;
+        }
+
+        /**
+         * Decode one frame between src's position and limit (src is not moved).
+         *
+         * @return true if out was updated; false for a malformed frame or a
+         * delta that does not follow the last applied frame
+         */
+        public boolean decode(ByteBuffer src, TelemetrySnapshot out) {
+            if (resetRequested) {
+                resetRequested = false;
+                synced = false;
+            }
+            if (!isFrame(src)) return false;
+            buf = src;
+            pos = src.position() + 1;
+            end = src.limit();
+            try {
+                int kind = next();
+                int seq = next();
+                long mask = readVarint();
+                if (seq < 0 || mask < 0 || mask >= 1 << FIELDS) return false;
+                boolean key = kind == KIND_KEY;
+                if (!key && kind != KIND_DELTA) return false;
+                if (!key && (!synced || seq != ((lastSeq + 1) & 0xFF))) {
+                    synced = false;
+                    skipped++;
+                    return false;
+                }
+
+                for (int i = 0; i < FIELDS; i++) {
+                    if ((mask & (1 << i)) == 0) {
+                        staged[i] = key ? 0 : base[i];
+                        continue;
+                    }
+                    long z = readVarint();
+                    if (malformed) return false;
+                    long v = (z >>> 1) ^ -(z & 1);
+                    staged[i] = key ? v : base[i] + v;
+                }
+                if (pos != end) return false;
+
+                // the whole frame parsed: commit it
+                System.arraycopy(staged, 0, base, 0, FIELDS);
+                synced = true;
+                lastSeq = seq;
+                if (key) keyframes++;
+                else deltas++;
+
+                out.updated = 0;
+                for (int i = 0; i < FIELDS; i++) {
+                    if ((mask & (1 << i)) == 0) continue;
+                    apply(out, i, base[i]);
+                    out.fields |= 1 << i;
+                    out.updated |= 1 << i;
+                }
+                out.updateCount++;
+                out.receivedAtNanos = System.nanoTime();
+                return true;
+            } finally {
+                buf = null;
+            }
+        }
+
+        // Unsigned varint; sets malformed (and returns -1) if it runs off the frame
+        private long readVarint() {
+            malformed = false;
+            long z = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = next();
+                if (b < 0 || shift > 63) {
+                    malformed = true;
+                    return -1;
+                }
+                z |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return z;
+        }
+
+        // Next unstuffed byte, or -1 at the end of the frame
+        private int next() {
+            if (pos >= end) return -1;
+            int b = buf.get(pos++) & 0xFF;
+            if (b != ESC) return b;
+            if (pos >= end) return -1;
+            return (buf.get(pos++) & 0xFF) ^ ESC_XOR;
+        }
+
+        /** Keyframes applied. */
+        public long keyframeCount() {
+            return keyframes;
+        }
+
+        /** Delta frames applied. */
+        public long deltaCount() {
+            return deltas;
+        }
+
+        /** Delta frames dropped while waiting for a keyframe. */
+        public long skippedCount() {
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.mathsya_v_01;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand-off of the latest {@link TelemetrySnapshot} from one writer
+ * (the network thread) to one reader (the UI thread), using three buffers.
+ *
+ * The writer never waits for the reader; snapshots the reader did not get to
+ * are overwritten, so the UI only ever sees the newest one.
+ */
+public final class TelemetryMailbox {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    private final TelemetrySnapshot[] buffers = {
+            new TelemetrySnapshot(), new TelemetrySnapshot(), new TelemetrySnapshot()
+    };
+    // index of the shared middle buffer, plus FRESH when it holds unread data
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;   // writer-owned
+    private int front = 2;  // reader-owned
+
+    /**
+     * Publish a copy of src. Returns true when the reader had already taken the
+     * previous snapshot, i.e. when the caller should wake the reader up again.
+     */
+    public boolean publish(TelemetrySnapshot src) {
+        buffers[back].copyFrom(src);
+        int old = middle.getAndSet(back | FRESH);
+        back = old & INDEX_MASK;
+        return (old & FRESH) == 0;
+    }
+
+    /**
+     * Newest snapshot for the reader. The returned object stays owned by the
+     * reader until its next call, so it is safe to read without locking.
+     */
+    public TelemetrySnapshot latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.mathsya_v_01;
+
+/**
+ * Latest known vehicle telemetry, held in primitives so it can be reused
+ * instead of reallocated for every message.
+ *
+ * Fields that a message did not carry keep their previous value; {@link #fields}
+ * records which ones have been seen at least once.
+ */
+public final class TelemetrySnapshot {
+
+    public static final int F_BATTERY = 1;
+    public static final int F_ARMED = 1 << 1;
+    public static final int F_DEPTH = 1 << 2;
+    public static final int F_PH = 1 << 3;
+    public static final int F_DO = 1 << 4;
+    public static final int F_TEMP = 1 << 5;
+    public static final int F_TURBIDITY = 1 << 6;
+    public static final int F_AMMONIA = 1 << 7;
+    public static final int F_LAT = 1 << 8;
+    public static final int F_LON = 1 << 9;
+
+    public int battery;
+    public boolean armed;
+    public double depth;
+    public double ph;
+    public double dissolvedOxygen;
+    public double temperature;
+    public double turbidity;
+    public double ammonia;
+    /** Position in degrees (WGS84). */
+    public double latitude;
+    public double longitude;
+
+    /** Bit set of F_* flags seen so far. */
+    public int fields;
+    /** Bit set of F_* flags carried by the most recent message. */
+    public int updated;
+    /** Incremented once per decoded message. */
+    public long updateCount;
+    /** System.nanoTime() of the last decoded message. */
+    public long receivedAtNanos;
+
+    public boolean has(int field) {
+        return (fields & field) != 0;
+    }
+
+    /** True when the most recent message moved the position and both halves are known. */
+    public boolean positionUpdated() {
+        return (updated & (F_LAT | F_LON)) != 0 && has(F_LAT) && has(F_LON);
+    }
+
+    public void copyFrom(TelemetrySnapshot o) {
+        battery = o.battery;
+        armed = o.armed;
+        depth = o.depth;
+        ph = o.ph;
+        dissolvedOxygen = o.dissolvedOxygen;
+        temperature = o.temperature;
+        turbidity = o.turbidity;
+        ammonia = o.ammonia;
+        latitude = o.latitude;
+        longitude = o.longitude;
+        fields = o.fields;
+        updated = o.updated;
+        updateCount = o.updateCount;
+        receivedAtNanos = o.receivedAtNanos;
+    }
+}
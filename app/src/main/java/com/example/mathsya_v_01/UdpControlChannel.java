@@ -0,0 +1,271 @@
+package com.example.mathsya_v_01;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Datagram path for continuous control frames (joystick and throttle).
+ *
+ * Only the newest frame matters for steering, so there is no queue: a frame
+ * that has not gone out yet is overwritten by the next one, and a lost
+ * datagram is never retransmitted. The vehicle drops anything older than the
+ * last sequence it applied ({@link ControlFrameCodec#isNewer}), so reordering
+ * on the link cannot move the vehicle backwards.
+ *
+ * Arm and disarm must not be lost and stay on the TCP link.
+ *
+ * Datagrams coming back from the vehicle (echoes of applied frames) go to the
+ * echo listener on a receiver thread.
+ */
+public class UdpControlChannel {
+
+    public interface StatusCallback {
+        /** Runs on the main thread. */
+        void onChannelChanged(boolean active, String detail);
+    }
+
+    private static final String TAG = "UdpControlChannel";
+    private static final int MAX_FRAME_BYTES = 512;
+    private static final int MAX_ECHO_BYTES = 2048;
+
+    private final StatusCallback callback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Single "latest" slot, handed to the sender thread under the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final ByteBuffer latest = ByteBuffer.allocateDirect(MAX_FRAME_BYTES);
+    private final ByteBuffer outgoing = ByteBuffer.allocateDirect(MAX_FRAME_BYTES);
+    private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder();
+    private boolean hasPending = false;
+
+    private volatile DatagramChannel channel;
+    private Thread senderThread;
+    private Thread receiverThread;
+    private volatile BinaryMessageCallback echoCallback;
+    private volatile boolean active = false;
+    private volatile FlightRecorder recorder;
+
+    private long framesSent = 0;
+    private long framesSuperseded = 0;
+
+    public UdpControlChannel(StatusCallback callback) {
+        this.callback = callback;
+    }
+
+    // ---------------------------------------------------------
+    // OPEN / CLOSE
+    // ---------------------------------------------------------
+
+    /** Start sending to host:port; replaces any channel already open. */
+    public synchronized void open(String host, int port) {
+        close();
+        lock.lock();
+        try {
+            hasPending = false;
+        } finally {
+            lock.unlock();
+        }
+        // Opening a socket counts as network I/O, so it happens on the sender thread too
+        senderThread = new Thread(() -> run(host, port), "UdpControl-sender");
+        senderThread.start();
+    }
+
+    public synchronized void close() {
+        if (senderThread == null) return;
+        boolean wasActive = active;
+        active = false;
+        senderThread.interrupt();
+        senderThread = null;
+        if (receiverThread != null) receiverThread.interrupt();
+        receiverThread = null;
+        if (channel != null) closeQuietly(channel);
+        channel = null;
+        if (wasActive) callbackStatus(false, "UDP control closed");
+    }
+
+    /** True while frames sent here actually go out as datagrams. */
+    public boolean isActive() {
+        return active;
+    }
+
+    // ---------------------------------------------------------
+    // SEND (any thread, never blocks on the network)
+    // ---------------------------------------------------------
+
+    /**
+     * Queue frame as the next datagram, replacing one not yet sent. The bytes
+     * between position and limit are copied.
+     *
+     * @return false if the channel is not active and the caller should use TCP
+     */
+    public boolean send(ByteBuffer frame) {
+        if (!active || frame.remaining() > MAX_FRAME_BYTES) return false;
+        FlightRecorder rec = recorder;
+        if (rec != null) {
+            rec.record(FlightRecorder.DIR_OUTBOUND, FlightRecorder.CHANNEL_UDP, FrameReader.TYPE_CONTROL, frame);
+        }
+        lock.lock();
+        try {
+            latest.clear();
+            int pos = frame.position();
+            latest.put(frame);
+            frame.position(pos);
+            latest.flip();
+            offerLatest();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /** Same as {@link #send(ByteBuffer)} for a JSON control frame. */
+    public boolean send(String json) {
+        if (!active) return false;
+        FlightRecorder rec = recorder;
+        if (rec != null) rec.record(FlightRecorder.DIR_OUTBOUND, FlightRecorder.CHANNEL_UDP, json);
+        lock.lock();
+        try {
+            latest.clear();
+            utf8.reset();
+            if (utf8.encode(CharBuffer.wrap(json), latest, true).isOverflow()) return false;
+            latest.flip();
+            offerLatest();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    // Caller holds lock
+    private void offerLatest() {
+        if (hasPending) framesSuperseded++;
+        hasPending = true;
+        pending.signal();
+    }
+
+    // ---------------------------------------------------------
+    // SENDER THREAD
+    // ---------------------------------------------------------
+    private void run(String host, int port) {
+        DatagramChannel ch;
+        try {
+            ch = DatagramChannel.open();
+            ch.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            callbackStatus(false, "UDP open failed: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            // closed or reopened while we were connecting
+            if (senderThread != Thread.currentThread()) {
+                closeQuietly(ch);
+                return;
+            }
+            channel = ch;
+            active = true;
+            receiverThread = new Thread(() -> receiveLoop(ch), "UdpControl-receiver");
+            receiverThread.start();
+        }
+        callbackStatus(true, "UDP control to " + host + ":" + port);
+        sendLoop(ch);
+    }
+
+    private void sendLoop(DatagramChannel ch) {
+        while (!Thread.currentThread().isInterrupted()) {
+            lock.lock();
+            try {
+                while (!hasPending) pending.await();
+                outgoing.clear();
+                outgoing.put(latest);
+                outgoing.flip();
+                hasPending = false;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ch.write(outgoing);
+                framesSent++;
+            } catch (IOException e) {
+                // e.g. ICMP port unreachable: stop claiming the channel so control falls back to TCP
+                if (ch == channel) {
+                    active = false;
+                    callbackStatus(false, "UDP send failed: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    // Echoes are binary control frames or small JSON; payload is valid only during the call
+    private void receiveLoop(DatagramChannel ch) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_ECHO_BYTES);
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                buffer.clear();
+                int n = ch.read(buffer);
+                BinaryMessageCallback cb = echoCallback;
+                if (n <= 0 || cb == null) continue;
+                view.limit(n).position(0);
+                cb.onBinaryMessage(ControlFrameCodec.isBinaryFrame(view)
+                        ? FrameReader.TYPE_CONTROL : FrameReader.TYPE_TEXT, view);
+            }
+        } catch (IOException e) {
+            // ICMP port unreachable shows up here first
+            if (ch == channel && active) {
+                active = false;
+                callbackStatus(false, "UDP receive failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // HELPER
+    // ---------------------------------------------------------
+    private void callbackStatus(boolean isActive, String detail) {
+        mainHandler.post(() -> callback.onChannelChanged(isActive, detail));
+        Log.d(TAG, detail);
+    }
+
+    private static void closeQuietly(DatagramChannel ch) {
+        try {
+            ch.close();
+        } catch (IOException ignored) {}
+    }
+
+    /** Called on the receiver thread for every datagram from the vehicle. */
+    public void setEchoCallback(BinaryMessageCallback callback) {
+        this.echoCallback = callback;
+    }
+
+    /** Record every datagram sent on this channel; null to stop. */
+    public void setRecorder(FlightRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    // ---------------------------------------------------------
+    // METRICS (approximate when read off the sender thread)
+    // ---------------------------------------------------------
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getFramesSuperseded() {
+        return framesSuperseded;
+    }
+}
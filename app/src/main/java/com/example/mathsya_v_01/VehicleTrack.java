@@ -0,0 +1,283 @@
+package com.example.mathsya_v_01;
+
+import java.util.ArrayList;
+
+/**
+ * The vehicle's path, simplified as it is recorded and kept under a fixed
+ * number of points.
+ *
+ * Positions closer than the tolerance to the last kept point only move the
+ * live end of the track (radial-distance filter). Kept points collect in an
+ * open segment; when it is full it is simplified with Douglas-Peucker and
+ * frozen into a chunk that never changes again. So a map only ever redraws
+ * the open segment, and each frozen chunk is drawn once.
+ *
+ * When the track goes over its point budget, the oldest pair of neighbouring
+ * chunks at the finest tolerance is merged and simplified again with twice
+ * that tolerance. Like a binary counter, older parts of a long mission end up
+ * coarser while the recent part stays detailed. Past {@link #MAX_CHUNKS}
+ * chunks, neighbours are joined at their own tolerance, so the number of
+ * polylines stays bounded as well.
+ *
+ * Positions are WGS84 degrees; distances use a local flat approximation,
+ * which is plenty at tolerance scale. Not thread-safe.
+ */
+public final class VehicleTrack {
+
+    public interface Sink {
+        /** A new chunk; its points are final. lat/lon have exactly count points. */
+        void onChunkAdded(int chunkId, double[] lat, double[] lon);
+
+        /** A chunk was merged into a newer one and should be removed. */
+        void onChunkRemoved(int chunkId);
+
+        /**
+         * The open segment changed. Its first point is the last point of the
+         * newest chunk. The arrays are reused; copy what you keep.
+         */
+        void onTailChanged(double[] lat, double[] lon, int count);
+    }
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    // Each chunk is one map polyline; past this many, neighbours are joined
+    private static final int MAX_CHUNKS = 32;
+
+    private static final class Chunk {
+        final int id;
+        final double[] lat;
+        final double[] lon;
+        final double toleranceM;
+
+        Chunk(int id, double[] lat, double[] lon, double toleranceM) {
+            this.id = id;
+            this.lat = lat;
+            this.lon = lon;
+            this.toleranceM = toleranceM;
+        }
+    }
+
+    private final double toleranceM;
+    private final int segmentSize;
+    private final int pointBudget;
+    private final Sink sink;
+
+    private final ArrayList<Chunk> chunks = new ArrayList<>();
+    private int chunkPoints;
+    private int nextChunkId;
+
+    // Open segment, plus one slot for the live position
+    private final double[] openLat;
+    private final double[] openLon;
+    private int openCount;
+    private boolean hasLive;
+
+    // Douglas-Peucker scratch, sized for the largest merge
+    private boolean[] keep = new boolean[0];
+    private int[] stack = new int[0];
+
+    /**
+     * @param toleranceM  how far the simplified track may stray from the recorded one
+     * @param segmentSize kept points per chunk before it is frozen
+     * @param pointBudget most points held (and drawn) in total
+     */
+    public VehicleTrack(double toleranceM, int segmentSize, int pointBudget, Sink sink) {
+        this.toleranceM = toleranceM;
+        int size = Math.max(3, segmentSize);
+        this.segmentSize = size;
+        // room for the open segment and at least two segments' worth of chunks
+        this.pointBudget = Math.max(size * 3, pointBudget);
+        this.sink = sink;
+        this.openLat = new double[size + 1];
+        this.openLon = new double[size + 1];
+    }
+
+    // ---------------------------------------------------------
+    // RECORDING
+    // ---------------------------------------------------------
+    public void add(double lat, double lon) {
+        if (openCount == 0) {
+            keepPoint(lat, lon);
+        } else {
+            int last = openCount - 1;
+            if (distanceM(openLat[last], openLon[last], lat, lon) < toleranceM) {
+                // too close to the last kept point: only the live end moves
+                openLat[openCount] = lat;
+                openLon[openCount] = lon;
+                hasLive = true;
+            } else {
+                keepPoint(lat, lon);
+                if (openCount == openLat.length - 1) freezeOpenSegment();
+            }
+        }
+        sink.onTailChanged(openLat, openLon, openCount + (hasLive ? 1 : 0));
+    }
+
+    private void keepPoint(double lat, double lon) {
+        openLat[openCount] = lat;
+        openLon[openCount] = lon;
+        openCount++;
+        hasLive = false;
+    }
+
+    // Simplify the full open segment into a chunk; its last point starts the next segment
+    private void freezeOpenSegment() {
+        int n = simplify(openLat, openLon, openCount, toleranceM);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0, j = 0; i < openCount; i++) {
+            if (!keep[i]) continue;
+            lat[j] = openLat[i];
+            lon[j] = openLon[i];
+            j++;
+        }
+        addChunk(new Chunk(nextChunkId++, lat, lon, toleranceM));
+
+        openLat[0] = openLat[openCount - 1];
+        openLon[0] = openLon[openCount - 1];
+        openCount = 1;
+        enforceBudget();
+    }
+
+    private void addChunk(Chunk c) {
+        chunks.add(c);
+        chunkPoints += c.lat.length;
+        sink.onChunkAdded(c.id, c.lat, c.lon);
+    }
+
+    // Merge neighbouring chunks until the track fits; coarser if over the point budget.
+    // The open segment is reserved at full size plus the live point, as it refills
+    // before the next check.
+    private void enforceBudget() {
+        while (chunks.size() >= 2) {
+            boolean overBudget = chunkPoints + segmentSize + 1 > pointBudget;
+            if (!overBudget && chunks.size() <= MAX_CHUNKS) break;
+            // the oldest pair with the finest tolerance
+            int at = 0;
+            double finest = Double.MAX_VALUE;
+            for (int i = 0; i + 1 < chunks.size(); i++) {
+                double t = Math.max(chunks.get(i).toleranceM, chunks.get(i + 1).toleranceM);
+                if (t < finest) {
+                    finest = t;
+                    at = i;
+                }
+            }
+            Chunk a = chunks.remove(at);
+            Chunk b = chunks.remove(at);
+            chunkPoints -= a.lat.length + b.lat.length;
+
+            // b starts where a ends; keep that point once
+            int n = a.lat.length + b.lat.length - 1;
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            System.arraycopy(a.lat, 0, lat, 0, a.lat.length);
+            System.arraycopy(a.lon, 0, lon, 0, a.lon.length);
+            System.arraycopy(b.lat, 1, lat, a.lat.length, b.lat.length - 1);
+            System.arraycopy(b.lon, 1, lon, a.lon.length, b.lon.length - 1);
+
+            double tolerance = overBudget ? finest * 2 : finest;
+            int kept = simplify(lat, lon, n, tolerance);
+            double[] mergedLat = new double[kept];
+            double[] mergedLon = new double[kept];
+            for (int i = 0, j = 0; i < n; i++) {
+                if (!keep[i]) continue;
+                mergedLat[j] = lat[i];
+                mergedLon[j] = lon[i];
+                j++;
+            }
+            sink.onChunkRemoved(a.id);
+            sink.onChunkRemoved(b.id);
+            Chunk merged = new Chunk(nextChunkId++, mergedLat, mergedLon, tolerance);
+            chunks.add(at, merged);
+            chunkPoints += kept;
+            sink.onChunkAdded(merged.id, mergedLat, mergedLon);
+        }
+    }
+
+    /** Forget the whole track. */
+    public void clear() {
+        for (Chunk c : chunks) sink.onChunkRemoved(c.id);
+        chunks.clear();
+        chunkPoints = 0;
+        openCount = 0;
+        hasLive = false;
+        sink.onTailChanged(openLat, openLon, 0);
+    }
+
+    /** Report every chunk and the tail again, e.g. to a map that was just created. */
+    public void replay() {
+        for (Chunk c : chunks) sink.onChunkAdded(c.id, c.lat, c.lon);
+        sink.onTailChanged(openLat, openLon, openCount + (hasLive ? 1 : 0));
+    }
+
+    /** Points held in total, including the open segment. */
+    public int pointCount() {
+        return chunkPoints + openCount + (hasLive ? 1 : 0);
+    }
+
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    // ---------------------------------------------------------
+    // DOUGLAS-PEUCKER
+    // ---------------------------------------------------------
+
+    // Marks the points to keep in keep[0..n); returns how many
+    private int simplify(double[] lat, double[] lon, int n, double tolerance) {
+        if (keep.length < n) {
+            keep = new boolean[n];
+            stack = new int[2 * n];
+        }
+        for (int i = 0; i < n; i++) keep[i] = false;
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = n > 1 ? 2 : 1;
+
+        // Project onto a local plane around the first point once per call
+        double cosLat = Math.cos(Math.toRadians(lat[0]));
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            if (last - first < 2) continue;
+
+            double ax = lon[first] * cosLat, ay = lat[first];
+            double bx = lon[last] * cosLat, by = lat[last];
+            int farthest = -1;
+            double maxDist = 0;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistanceDeg(lon[i] * cosLat, lat[i], ax, ay, bx, by);
+                if (d > maxDist) {
+                    maxDist = d;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0 || Math.toRadians(maxDist) * EARTH_RADIUS_M <= tolerance) continue;
+            keep[farthest] = true;
+            kept++;
+            stack[top++] = first;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+        return kept;
+    }
+
+    // Distance from p to segment ab, in the (scaled) degrees of the inputs
+    private static double segmentDistanceDeg(double px, double py, double ax, double ay,
+                                             double bx, double by) {
+        double dx = bx - ax, dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / len2));
+        double ex = px - (ax + t * dx), ey = py - (ay + t * dy);
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+
+    static double distanceM(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_M;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mathsya_v_01;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class OutboundFrameRingTest {
+
+    private final OutboundFrameRing ring = new OutboundFrameRing(4, 32);
+
+    private static String text(ByteBuffer b) {
+        byte[] bytes = new byte[b.remaining()];
+        b.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Take one batch and write all of it, as the writer thread does
+    private String[] drain() throws InterruptedException {
+        int n = ring.awaitBatch();
+        String[] out = new String[n];
+        long bytes = 0;
+        for (int i = 0; i < n; i++) {
+            ByteBuffer b = ring.batch()[i];
+            out[i] = text(b);
+            bytes += b.remaining();
+            b.position(b.limit());
+        }
+        ring.release(n, bytes);
+        return out;
+    }
+
+    @Test
+    public void lineMode_terminatesTextWithNewline() throws InterruptedException {
+        assertTrue(ring.offerText("{\"a\":1}"));
+        assertArrayEquals(new String[]{"{\"a\":1}\n"}, drain());
+        assertEquals(8, ring.bytesWritten());
+    }
+
+    @Test
+    public void framedMode_prefixesLengthAndType() throws InterruptedException {
+        ring.setFramed(true);
+        ring.offer(FrameReader.TYPE_CONTROL, ByteBuffer.wrap(new byte[]{7, 8, 9}));
+        ring.awaitBatch();
+        ByteBuffer slot = ring.batch()[0];
+        assertEquals(5, slot.remaining());
+        assertEquals(4, slot.get(0));  // varint: type byte + payload
+        assertEquals(FrameReader.TYPE_CONTROL, slot.get(1));
+        assertEquals(7, slot.get(2));
+        assertEquals(9, slot.get(4));
+    }
+
+    @Test
+    public void offer_copiesSoTheCallerMayReuseItsBuffer() throws InterruptedException {
+        ByteBuffer frame = ByteBuffer.wrap("one".getBytes(StandardCharsets.UTF_8));
+        ring.offer(FrameReader.TYPE_BINARY, frame);
+        frame.clear();
+        frame.put("two".getBytes(StandardCharsets.UTF_8)).flip();
+        assertArrayEquals(new String[]{"one"}, drain());
+    }
+
+    @Test
+    public void batchesStayInOrderAcrossWraparound() throws InterruptedException {
+        for (int round = 0; round < 5; round++) {
+            ring.offerText("a" + round);
+            ring.offerText("b" + round);
+            ring.offerText("c" + round);
+            assertArrayEquals(new String[]{"a" + round + "\n", "b" + round + "\n", "c" + round + "\n"}, drain());
+            assertEquals(0, ring.depth());
+        }
+        assertEquals(0, ring.framesDropped());
+    }
+
+    @Test
+    public void full_dropsNewFramesAndCountsThem() throws InterruptedException {
+        for (int i = 0; i < 4; i++) assertTrue(ring.offerText("m" + i));
+        assertFalse(ring.offerText("m4"));
+        assertEquals(1, ring.framesDropped());
+        assertEquals(4, ring.depth());
+
+        // the queued frames are untouched, and room comes back once they are written
+        assertArrayEquals(new String[]{"m0\n", "m1\n", "m2\n", "m3\n"}, drain());
+        assertTrue(ring.offerText("m5"));
+        assertArrayEquals(new String[]{"m5\n"}, drain());
+    }
+
+    @Test
+    public void frameLargerThanSlot_isDropped() {
+        assertFalse(ring.offer(FrameReader.TYPE_BINARY, ByteBuffer.allocate(33)));
+        assertFalse(ring.offerText(new String(new char[32]).replace('\0', 'x')));
+        assertEquals(2, ring.framesDropped());
+        assertEquals(0, ring.depth());
+    }
+
+    @Test
+    public void release_freesOnlyTheBatchTaken() throws InterruptedException {
+        ring.offerText("a");
+        ring.awaitBatch();
+        ring.offerText("b");  // arrives while "a" is being written
+        ring.release(2, 2);
+        assertEquals(1, ring.depth());
+        assertArrayEquals(new String[]{"b\n"}, drain());
+    }
+
+    @Test
+    public void clear_dropsPendingFrames() throws InterruptedException {
+        ring.offerText("old");
+        ring.offerText("old");
+        ring.clear();
+        assertEquals(0, ring.depth());
+        ring.offerText("new");
+        assertArrayEquals(new String[]{"new\n"}, drain());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.mathsya_v_01;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PositionRingTest {
+
+    private final PositionRing ring = new PositionRing(4);
+    private final List<double[]> drained = new ArrayList<>();
+
+    private int drain() {
+        return ring.drain((lat, lon) -> drained.add(new double[]{lat, lon}));
+    }
+
+    @Test
+    public void capacity_isRoundedUpToAPowerOfTwo() {
+        assertEquals(4, ring.capacity());
+        assertEquals(1024, new PositionRing(1000).capacity());
+    }
+
+    @Test
+    public void onlyTheFirstOfferIntoAnEmptyRing_asksForADrain() {
+        assertTrue(ring.offer(1, 10));
+        assertFalse(ring.offer(2, 20));
+        assertEquals(2, drain());
+        assertTrue(ring.offer(3, 30));
+    }
+
+    @Test
+    public void drain_keepsOrderAcrossWraparound() {
+        for (int round = 0; round < 5; round++) {
+            drained.clear();
+            for (int i = 0; i < 3; i++) ring.offer(round, i);
+            assertEquals(3, drain());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(round, drained.get(i)[0], 0);
+                assertEquals(i, drained.get(i)[1], 0);
+            }
+        }
+        assertEquals(0, drain());
+    }
+
+    @Test
+    public void full_dropsNewPositionsAndCountsThem() {
+        for (int i = 0; i < 4; i++) ring.offer(i, i);
+        assertFalse(ring.offer(4, 4));
+        assertEquals(1, ring.dropped());
+        assertEquals(4, drain());
+        assertEquals(3, drained.get(3)[0], 0);
+    }
+
+    @Test
+    public void clear_forgetsQueuedPositions() {
+        ring.offer(1, 1);
+        ring.offer(2, 2);
+        ring.clear();
+        assertEquals(0, drain());
+        assertTrue(ring.offer(3, 3));
+        assertEquals(1, drain());
+    }
+
+    @Test
+    public void writerAndReaderThreads_loseNothingTheRingHeld() throws InterruptedException {
+        PositionRing shared = new PositionRing(64);
+        int total = 200_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < total; i++) shared.offer(i, -i);
+        });
+        writer.start();
+        double[] last = {-1};
+        long[] received = {0};
+        PositionRing.Sink check = (lat, lon) -> {
+            assertTrue(lat > last[0]);
+            assertEquals(-lat, lon, 0);
+            last[0] = lat;
+            received[0]++;
+        };
+        while (writer.isAlive()) shared.drain(check);
+        writer.join();
+        shared.drain(check);
+        assertEquals(total, received[0] + shared.dropped());
+    }
+}
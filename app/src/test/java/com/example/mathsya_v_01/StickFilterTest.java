@@ -0,0 +1,106 @@
+package com.example.mathsya_v_01;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StickFilterTest {
+
+    private final StickFilter filter = new StickFilter();
+
+    @Test
+    public void insideDeadZone_readsCentred() {
+        filter.setPassThrough();
+        filter.update(0.03, -0.03, 0);
+        assertEquals(0.03, filter.filteredX(), 1e-9);
+        assertEquals(0, filter.x(), 0);
+        assertEquals(0, filter.y(), 0);
+    }
+
+    @Test
+    public void fullDeflection_isClampedToTheUnitDisc() {
+        filter.setPassThrough();
+        filter.update(2, 2, 0);
+        assertEquals(Math.sqrt(0.5), filter.filteredX(), 1e-9);
+        assertEquals(1, Math.hypot(filter.x(), filter.y()), 1e-9);
+        assertEquals(filter.x(), filter.y(), 1e-9);  // direction kept
+    }
+
+    @Test
+    public void expo_givesFinerControlNearCentre() {
+        filter.setPassThrough();
+        filter.setDeadZone(0);
+        filter.setExpo(0);
+        filter.update(0.5, 0, 0);
+        assertEquals(0.5, filter.x(), 1e-9);
+
+        filter.setExpo(1);
+        filter.update(0.5, 0, 10);
+        assertEquals(0.125, filter.x(), 1e-9);
+    }
+
+    @Test
+    public void firstSample_passesStraightThrough() {
+        filter.update(0.6, -0.2, 1000);
+        assertEquals(0.6, filter.filteredX(), 1e-9);
+        assertEquals(-0.2, filter.filteredY(), 1e-9);
+    }
+
+    @Test
+    public void lowPass_settlesOnAStep() {
+        filter.setLowPass(5);
+        filter.update(0, 0, 0);
+        filter.update(1, 0, 10);
+        assertTrue(filter.filteredX() > 0 && filter.filteredX() < 0.5);
+        for (long t = 20; t <= 500; t += 10) filter.update(1, 0, t);
+        assertEquals(1, filter.filteredX(), 0.01);
+    }
+
+    @Test
+    public void oneEuro_smoothsJitterOfARestingFinger() {
+        Random random = new Random(5);
+        double rawSquares = 0, filteredSquares = 0;
+        for (int i = 0; i < 200; i++) {
+            double noise = random.nextGaussian() * 0.01;
+            filter.update(0.5 + noise, 0, i * 8L);
+            if (i < 50) continue;  // settle first
+            rawSquares += noise * noise;
+            filteredSquares += (filter.filteredX() - 0.5) * (filter.filteredX() - 0.5);
+        }
+        assertTrue(filteredSquares < rawSquares / 4);
+    }
+
+    @Test
+    public void oneEuro_followsAFlickFasterThanAFixedLowPass() {
+        StickFilter lowPass = new StickFilter();
+        lowPass.setLowPass(1.5);
+        filter.update(0, 0, 0);
+        lowPass.update(0, 0, 0);
+        for (long t = 8; t <= 80; t += 8) {
+            filter.update(1, 0, t);
+            lowPass.update(1, 0, t);
+        }
+        assertTrue(filter.filteredX() > 0.9);
+        assertTrue(filter.filteredX() > lowPass.filteredX() + 0.3);
+    }
+
+    @Test
+    public void reset_forgetsHistory() {
+        filter.update(1, 0, 0);
+        filter.reset();
+        assertEquals(0, filter.x(), 0);
+        filter.update(-0.8, 0, 8);
+        assertEquals(-0.8, filter.filteredX(), 1e-9);
+    }
+
+    @Test
+    public void repeatedOrOutOfOrderTimestamps_stayFinite() {
+        filter.update(0.2, 0, 100);
+        filter.update(0.9, 0, 100);
+        filter.update(0.4, 0, 90);
+        assertTrue(Math.abs(filter.filteredX()) <= 1);
+        assertFalse(Double.isNaN(filter.x()));
+    }
+}
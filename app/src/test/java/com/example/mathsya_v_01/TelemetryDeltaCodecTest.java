@@ -0,0 +1,186 @@
+package com.example.mathsya_v_01;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TelemetryDeltaCodecTest {
+
+    private final TelemetryDeltaCodec.Encoder encoder = new TelemetryDeltaCodec.Encoder(10);
+    private final TelemetryDeltaCodec.Decoder decoder = new TelemetryDeltaCodec.Decoder();
+    private final TelemetrySnapshot decoded = new TelemetrySnapshot();
+
+    private static TelemetrySnapshot reading() {
+        TelemetrySnapshot s = new TelemetrySnapshot();
+        s.battery = 87;
+        s.armed = true;
+        s.depth = 2.41;
+        s.ph = 7.82;
+        s.dissolvedOxygen = 6.47;
+        s.temperature = 27.31;
+        s.turbidity = 3.12;
+        s.ammonia = 0.021;
+        s.latitude = 12.9602117;
+        s.longitude = 80.0574321;
+        s.fields = (1 << 10) - 1;
+        return s;
+    }
+
+    private ByteBuffer encode(TelemetrySnapshot s) {
+        ByteBuffer frame = ByteBuffer.allocate(TelemetryDeltaCodec.MAX_FRAME_BYTES);
+        encoder.encode(s, frame);
+        frame.flip();
+        return frame;
+    }
+
+    private static void assertSameReading(TelemetrySnapshot expected, TelemetrySnapshot actual) {
+        assertEquals(expected.battery, actual.battery);
+        assertEquals(expected.armed, actual.armed);
+        assertEquals(expected.depth, actual.depth, 0.005);
+        assertEquals(expected.ph, actual.ph, 0.005);
+        assertEquals(expected.dissolvedOxygen, actual.dissolvedOxygen, 0.005);
+        assertEquals(expected.temperature, actual.temperature, 0.005);
+        assertEquals(expected.turbidity, actual.turbidity, 0.005);
+        assertEquals(expected.ammonia, actual.ammonia, 0.0005);
+        assertEquals(expected.latitude, actual.latitude, 1e-7);
+        assertEquals(expected.longitude, actual.longitude, 1e-7);
+    }
+
+    @Test
+    public void keyframeAndDeltas_roundTrip() {
+        TelemetrySnapshot s = reading();
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            s.depth += (random.nextInt(5) - 2) * 0.01;
+            s.temperature += 0.01;
+            s.latitude += random.nextGaussian() * 1e-5;
+            s.longitude += random.nextGaussian() * 1e-5;
+            ByteBuffer frame = encode(s);
+            assertTrue(TelemetryDeltaCodec.isFrame(frame));
+            assertTrue("frame " + i, decoder.decode(frame, decoded));
+            assertSameReading(s, decoded);
+        }
+        assertEquals(10, decoder.keyframeCount());
+        assertEquals(90, decoder.deltaCount());
+    }
+
+    @Test
+    public void unchangedReading_encodesNothingBetweenKeyframes() {
+        TelemetrySnapshot s = reading();
+        assertTrue(encode(s).hasRemaining());
+        assertFalse(encode(s).hasRemaining());
+    }
+
+    @Test
+    public void deltaCarriesOnlyChangedFields() {
+        TelemetrySnapshot s = reading();
+        decoder.decode(encode(s), decoded);
+        s.temperature += 0.5;
+        assertTrue(decoder.decode(encode(s), decoded));
+        assertEquals(TelemetrySnapshot.F_TEMP, decoded.updated);
+        assertEquals(s.temperature, decoded.temperature, 0.005);
+    }
+
+    @Test
+    public void newlineCarriageReturnAndEscape_areStuffed() {
+        TelemetrySnapshot s = new TelemetrySnapshot();
+        s.battery = 5;      // zig-zag 10, '\n'
+        s.ph = -0.07;       // zig-zag 13, '\r'
+        s.depth = -0.63;    // zig-zag 125, the escape byte
+        s.fields = TelemetrySnapshot.F_BATTERY | TelemetrySnapshot.F_PH | TelemetrySnapshot.F_DEPTH;
+        ByteBuffer frame = encode(s);
+        for (int i = frame.position(); i < frame.limit(); i++) {
+            byte b = frame.get(i);
+            assertNotEquals((byte) '\n', b);
+            assertNotEquals((byte) '\r', b);
+        }
+        assertTrue(decoder.decode(frame, decoded));
+        assertEquals(5, decoded.battery);
+        assertEquals(-0.07, decoded.ph, 1e-9);
+        assertEquals(-0.63, decoded.depth, 1e-9);
+    }
+
+    @Test
+    public void decode_doesNotMoveTheBuffer() {
+        ByteBuffer frame = encode(reading());
+        int position = frame.position();
+        assertTrue(decoder.decode(frame, decoded));
+        assertEquals(position, frame.position());
+    }
+
+    @Test
+    public void sequenceGap_skipsDeltasUntilKeyframe() {
+        TelemetrySnapshot s = reading();
+        ByteBuffer[] frames = new ByteBuffer[10];
+        for (int i = 0; i < frames.length; i++) {
+            s.temperature += 0.01;
+            frames[i] = encode(s);
+        }
+        assertTrue(decoder.decode(frames[0], decoded));
+        assertTrue(decoder.decode(frames[1], decoded));
+        // frame 2 is lost
+        double before = decoded.temperature;
+        for (int i = 3; i < frames.length; i++) {
+            assertFalse("frame " + i, decoder.decode(frames[i], decoded));
+        }
+        assertEquals(before, decoded.temperature, 0);
+        assertEquals(7, decoder.skippedCount());
+
+        s.temperature += 0.01;
+        assertTrue(decoder.decode(encode(s), decoded));  // the keyframe
+        assertSameReading(s, decoded);
+    }
+
+    @Test
+    public void reset_waitsForNextKeyframe() {
+        TelemetrySnapshot s = reading();
+        assertTrue(decoder.decode(encode(s), decoded));
+        decoder.reset();
+        s.temperature += 1;
+        assertFalse(decoder.decode(encode(s), decoded));
+
+        encoder.requestKeyframe();
+        s.temperature += 1;
+        assertTrue(decoder.decode(encode(s), decoded));
+        assertSameReading(s, decoded);
+    }
+
+    @Test
+    public void keyframeResets_fieldsItLeavesOut() {
+        TelemetrySnapshot s = reading();
+        decoder.decode(encode(s), decoded);
+        s.fields = TelemetrySnapshot.F_BATTERY;
+        s.battery = 50;
+        encoder.requestKeyframe();
+        decoder.decode(encode(s), decoded);
+        // a later delta of depth applies on top of 0, as the encoder assumes
+        s.fields |= TelemetrySnapshot.F_DEPTH;
+        s.depth = 1.5;
+        assertTrue(decoder.decode(encode(s), decoded));
+        assertEquals(1.5, decoded.depth, 1e-9);
+    }
+
+    @Test
+    public void truncatedFrame_isRejectedAndNothingApplied() {
+        TelemetrySnapshot s = reading();
+        decoder.decode(encode(s), decoded);
+        long updates = decoded.updateCount;
+        s.temperature += 0.2;
+        s.depth += 0.3;
+        ByteBuffer frame = encode(s);
+        frame.limit(frame.limit() - 1);
+        assertFalse(decoder.decode(frame, decoded));
+        assertEquals(updates, decoded.updateCount);
+        assertEquals(27.31, decoded.temperature, 0.005);
+    }
+
+    @Test
+    public void otherBytes_areNotFrames() {
+        ByteBuffer json = ByteBuffer.wrap("{\"battery\":87}".getBytes());
+        assertFalse(TelemetryDeltaCodec.isFrame(json));
+        assertFalse(decoder.decode(json, decoded));
+    }
+}
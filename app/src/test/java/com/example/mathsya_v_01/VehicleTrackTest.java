@@ -0,0 +1,128 @@
+package com.example.mathsya_v_01;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VehicleTrackTest {
+
+    private static final double LAT = 12.9602;
+    private static final double LON = 80.0574;
+    // about one metre
+    private static final double DEG_PER_M = 1 / 111_000.0;
+
+    /** Keeps what a map would show: the live chunks and the tail. */
+    private static final class MapSink implements VehicleTrack.Sink {
+        final Map<Integer, double[][]> chunks = new HashMap<>();
+        int tailCount;
+
+        @Override
+        public void onChunkAdded(int chunkId, double[] lat, double[] lon) {
+            assertNull("chunk " + chunkId + " added twice", chunks.put(chunkId, new double[][]{lat, lon}));
+        }
+
+        @Override
+        public void onChunkRemoved(int chunkId) {
+            assertNotNull("unknown chunk " + chunkId, chunks.remove(chunkId));
+        }
+
+        @Override
+        public void onTailChanged(double[] lat, double[] lon, int count) {
+            tailCount = count;
+        }
+
+        int chunkPoints() {
+            int n = 0;
+            for (double[][] c : chunks.values()) n += c[0].length;
+            return n;
+        }
+    }
+
+    private final MapSink sink = new MapSink();
+
+    @Test
+    public void pointsCloserThanTolerance_onlyMoveTheLiveEnd() {
+        VehicleTrack track = new VehicleTrack(5, 16, 1000, sink);
+        track.add(LAT, LON);
+        track.add(LAT + DEG_PER_M, LON);
+        track.add(LAT + 2 * DEG_PER_M, LON);
+        assertEquals(2, track.pointCount());  // first point plus the live end
+        assertEquals(2, sink.tailCount);
+
+        track.add(LAT + 10 * DEG_PER_M, LON);
+        assertEquals(2, track.pointCount());
+    }
+
+    @Test
+    public void straightRun_isFrozenIntoFewPoints() {
+        VehicleTrack track = new VehicleTrack(1, 16, 1000, sink);
+        for (int i = 0; i < 16; i++) track.add(LAT + i * 3 * DEG_PER_M, LON);
+        assertEquals(1, track.chunkCount());
+        // a straight line keeps only its ends; the last one also starts the tail
+        assertEquals(2, sink.chunkPoints());
+        assertEquals(1, sink.tailCount);
+    }
+
+    @Test
+    public void longWander_staysWithinPointBudget() {
+        VehicleTrack track = new VehicleTrack(0.5, 64, 2000, sink);
+        Random random = new Random(3);
+        double lat = LAT, lon = LON, heading = 0;
+        int most = 0;
+        // four hours at 10 Hz, about 1.5 m/s
+        for (int i = 0; i < 144_000; i++) {
+            heading += (random.nextDouble() - 0.5) * 0.1;
+            lat += Math.cos(heading) * 0.15 * DEG_PER_M;
+            lon += Math.sin(heading) * 0.15 * DEG_PER_M;
+            track.add(lat + random.nextGaussian() * 2e-6, lon);
+            most = Math.max(most, track.pointCount());
+        }
+        assertTrue("peaked at " + most, most <= 2000);
+        assertTrue(track.chunkCount() <= 32);
+        assertEquals(track.chunkCount(), sink.chunks.size());
+        assertEquals(track.pointCount(), sink.chunkPoints() + sink.tailCount);
+    }
+
+    @Test
+    public void chunksJoinEndToEnd() {
+        VehicleTrack track = new VehicleTrack(0.5, 8, 200, sink);
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            track.add(LAT + i * DEG_PER_M, LON + random.nextGaussian() * 5 * DEG_PER_M);
+        }
+        // each chunk starts where another ends, so there are no gaps in the line
+        Map<Double, Integer> starts = new HashMap<>();
+        for (double[][] c : sink.chunks.values()) starts.merge(c[0][0], 1, Integer::sum);
+        int joined = 0;
+        for (double[][] c : sink.chunks.values()) {
+            if (starts.containsKey(c[0][c[0].length - 1])) joined++;
+        }
+        assertEquals(sink.chunks.size() - 1, joined);
+    }
+
+    @Test
+    public void clear_removesEveryChunk() {
+        VehicleTrack track = new VehicleTrack(0.5, 8, 200, sink);
+        for (int i = 0; i < 100; i++) track.add(LAT + i * DEG_PER_M, LON + (i % 2) * DEG_PER_M);
+        assertTrue(track.chunkCount() > 0);
+        track.clear();
+        assertEquals(0, track.pointCount());
+        assertTrue(sink.chunks.isEmpty());
+        assertEquals(0, sink.tailCount);
+    }
+
+    @Test
+    public void replay_reportsTheSameTrackAgain() {
+        VehicleTrack track = new VehicleTrack(0.5, 8, 200, sink);
+        for (int i = 0; i < 100; i++) track.add(LAT + i * DEG_PER_M, LON + (i % 2) * DEG_PER_M);
+        int points = sink.chunkPoints();
+        sink.chunks.clear();
+        track.replay();
+        assertEquals(points, sink.chunkPoints());
+        assertEquals(track.pointCount(), sink.chunkPoints() + sink.tailCount);
+    }
+}
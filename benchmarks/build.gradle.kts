@@ -0,0 +1,112 @@
+import groovy.json.JsonSlurper
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The hot-path classes have no Android dependencies, so they are compiled
+// straight from the app sources and measured on the JVM.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/mathsya_v_01/BufferPool.java",
+                "com/example/mathsya_v_01/ControlFrameCodec.java",
+                "com/example/mathsya_v_01/ControlState.java",
+                "com/example/mathsya_v_01/FrameReader.java",
+                "com/example/mathsya_v_01/LogRing.java",
+                "com/example/mathsya_v_01/OutboundMessageQueue.java",
+                "com/example/mathsya_v_01/OutboundFrameRing.java",
+                "com/example/mathsya_v_01/TelemetryDecoder.java",
+                "com/example/mathsya_v_01/TelemetryDeltaCodec.java",
+                "com/example/mathsya_v_01/TelemetrySnapshot.java",
+            )
+        }
+    }
+}
+
+dependencies {
+    // Android ships org.json; on the JVM it comes from Maven Central
+    implementation(libs.org.json)
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    timeOnIteration.set("1s")
+    warmup.set("1s")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
+/*
+ * Compare the last JMH run with the committed baseline.json.
+ *
+ *   ./gradlew :benchmarks:jmh :benchmarks:checkBenchmarkBaseline [-PbenchTolerance=0.3]
+ *
+ * Fails when a benchmark's throughput drops more than the tolerance below its
+ * baseline, or when it allocates more bytes per op than the baseline allows.
+ * Refresh the baseline on the reference machine with -PupdateBaseline.
+ * The committed numbers come from a single-core JDK 17 box with 3x1s warmup
+ * and 5x1s measurement, so compare like with like.
+ */
+tasks.register("checkBenchmarkBaseline") {
+    group = "verification"
+    description = "Checks JMH results against benchmarks/baseline.json."
+    val resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    val baselineFile = layout.projectDirectory.file("baseline.json")
+
+    doLast {
+        val results = resultsFile.get().asFile
+        if (!results.exists()) throw GradleException("No JMH results; run :benchmarks:jmh first")
+
+        @Suppress("UNCHECKED_CAST")
+        val runs = JsonSlurper().parse(results) as List<Map<String, Any>>
+        val measured = linkedMapOf<String, Pair<Double, Double?>>()
+        for (run in runs) {
+            if (run["mode"] != "thrpt") continue
+            val params = (run["params"] as Map<*, *>?)?.entries?.joinToString(",") { "${it.key}=${it.value}" }
+            val name = (run["benchmark"] as String).substringAfterLast("bench.") +
+                    (if (params != null) "[$params]" else "")
+            val primary = run["primaryMetric"] as Map<*, *>
+            val secondary = run["secondaryMetrics"] as Map<*, *>
+            val alloc = (secondary["gc.alloc.rate.norm"] ?: secondary["·gc.alloc.rate.norm"]) as Map<*, *>?
+            measured[name] = (primary["score"] as Number).toDouble() to (alloc?.get("score") as Number?)?.toDouble()
+        }
+
+        if (project.hasProperty("updateBaseline")) {
+            val body = measured.entries.joinToString(",\n") { (name, v) ->
+                "    \"$name\": { \"opsPerUs\": ${"%.4f".format(java.util.Locale.US, v.first)}, " +
+                        "\"bytesPerOp\": ${"%.1f".format(java.util.Locale.US, v.second ?: 0.0)} }"
+            }
+            baselineFile.asFile.writeText("{\n$body\n}\n")
+            logger.lifecycle("Baseline updated with ${measured.size} benchmarks")
+            return@doLast
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        val baseline = JsonSlurper().parse(baselineFile.asFile) as Map<String, Map<String, Number>>
+        val tolerance = (project.findProperty("benchTolerance") as String?)?.toDouble() ?: 0.3
+        val failures = mutableListOf<String>()
+        for ((name, expected) in baseline) {
+            val (ops, bytes) = measured[name] ?: continue
+            val minOps = expected.getValue("opsPerUs").toDouble() * (1 - tolerance)
+            // small absolute slack: JIT noise can show a few bytes per op
+            val maxBytes = expected.getValue("bytesPerOp").toDouble() * (1 + tolerance) + 8
+            if (ops < minOps) failures += "$name: %.4f ops/us < %.4f".format(ops, minOps)
+            if (bytes != null && bytes > maxBytes) failures += "$name: %.1f B/op > %.1f".format(bytes, maxBytes)
+            logger.lifecycle("%-55s %10.4f ops/us %10.1f B/op".format(name, ops, bytes ?: Double.NaN))
+        }
+        if (failures.isNotEmpty()) {
+            throw GradleException("Benchmark regressions:\n  " + failures.joinToString("\n  "))
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.mathsya_v_01.bench;
+
+import com.example.mathsya_v_01.ControlFrameCodec;
+import com.example.mathsya_v_01.ControlState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one ControlState into a wire frame, as done on every
+ * ControlPublisher tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControlEncodingBenchmark {
+
+    private final ControlState state = new ControlState();
+    private final ControlFrameCodec codec = new ControlFrameCodec();
+    private double t;
+
+    @Setup
+    public void setUp() {
+        state.setArmed(true);
+        state.setThrottle(42);
+    }
+
+    // Vary the input so nothing is constant-folded
+    private void step() {
+        t += 0.001;
+        state.setPosition(Math.sin(t), Math.cos(t));
+        state.nextSequence();
+    }
+
+    /** JSON path in sendDataToServer(). */
+    @Benchmark
+    public String json() {
+        step();
+        return state.toJSON().toString();
+    }
+
+    /** The original send path built the JSON once to send and again to log it. */
+    @Benchmark
+    public String jsonTwice() {
+        step();
+        String sent = state.toJSON().toString();
+        String logged = "Sent: " + state.toJSON().toString();
+        return sent.length() > logged.length() ? sent : logged;
+    }
+
+    @Benchmark
+    public ByteBuffer binary() {
+        step();
+        return codec.encode(state, 1_700_000_000_000L);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.mathsya_v_01.bench;
+
+import com.example.mathsya_v_01.LogRing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One "Sent: ..." log entry per control frame. Compares the original
+ * appendLog (formatting plus a 30,000-char String buffer trimmed with
+ * substring) with the bounded LogRing that replaced it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LogAppendBenchmark {
+
+    private static final int MAX_LOG_LENGTH = 30000;
+    private static final String MESSAGE =
+            "Sent: {\"x\":0.12,\"y\":-0.5,\"throttle\":40,\"armed\":true,\"ts\":1700000000000,\"seq\":1}";
+
+    private String logMessages = "";
+    private final LogRing ring = new LogRing(2000);
+
+    // Start both from a full log, the steady state after a few seconds of driving
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 2000; i++) {
+            legacy();
+            ring();
+        }
+    }
+
+    /** DashboardActivity.appendLog before the log ring, minus the UI post. */
+    @Benchmark
+    public String legacy() {
+        String ts = new SimpleDateFormat("HH:mm:ss", Locale.getDefault()).format(new Date());
+        String line = String.format("[%s] %s: %s\n", ts, "INFO", MESSAGE);
+        logMessages += line;
+        if (logMessages.length() > MAX_LOG_LENGTH) {
+            logMessages = logMessages.substring(logMessages.length() - MAX_LOG_LENGTH);
+        }
+        return logMessages;
+    }
+
+    @Benchmark
+    public LogRing ring() {
+        ring.append(System.currentTimeMillis(), LogRing.Level.INFO, MESSAGE);
+        return ring;
+    }
+}
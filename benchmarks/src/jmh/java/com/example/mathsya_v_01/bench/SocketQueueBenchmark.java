@@ -0,0 +1,105 @@
+package com.example.mathsya_v_01.bench;
+
+import com.example.mathsya_v_01.OutboundMessageQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SocketManager's outgoing queue under contention: three threads queueing
+ * control frames while disconnected, one thread flushing as if the socket had
+ * come back.
+ *
+ * "contended" is the original ConcurrentLinkedQueue logic, mirrored in
+ * {@link LegacySocketQueue} because SocketManager needs OkHttp. "superseding"
+ * is the {@link OutboundMessageQueue} that replaced it.
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SocketQueueBenchmark {
+
+    private final LegacySocketQueue queue = new LegacySocketQueue();
+    private final OutboundMessageQueue ring = new OutboundMessageQueue(64, 1);
+
+    @State(Scope.Thread)
+    public static class Producer {
+        final String message = "{\"x\":0.12,\"y\":-0.5,\"throttle\":40,\"armed\":true,\"ts\":1700000000000,\"seq\":1}";
+    }
+
+    @State(Scope.Thread)
+    public static class Flusher {
+        OutboundMessageQueue.Sender sender;
+
+        @Setup
+        public void setUp(Blackhole bh) {
+            sender = m -> {
+                bh.consume(m);
+                return true;
+            };
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void enqueue(Producer p) {
+        queue.enqueueSafe(p.message);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int flush(Blackhole bh) {
+        return queue.flushQueue(bh);
+    }
+
+    @Benchmark
+    @Group("superseding")
+    @GroupThreads(3)
+    public void offerControl(Producer p) {
+        ring.offerControl(0, p.message);
+    }
+
+    @Benchmark
+    @Group("superseding")
+    @GroupThreads(1)
+    public int drain(Flusher f) {
+        return ring.drain(f.sender);
+    }
+
+    /** The original SocketManager.enqueueSafe/flushQueue with the WebSocket stubbed out. */
+    static final class LegacySocketQueue {
+        private static final int QUEUE_MAX = 200;
+        private final ConcurrentLinkedQueue<String> outgoingQueue = new ConcurrentLinkedQueue<>();
+
+        void enqueueSafe(String message) {
+            if (outgoingQueue.size() >= QUEUE_MAX) {
+                outgoingQueue.poll();
+            }
+            outgoingQueue.offer(message);
+        }
+
+        int flushQueue(Blackhole socket) {
+            int sent = 0;
+            while (!outgoingQueue.isEmpty()) {
+                String m = outgoingQueue.poll();
+                if (m == null) break;
+                socket.consume(m);
+                sent++;
+            }
+            return sent;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.mathsya_v_01.bench;
+
+import com.example.mathsya_v_01.ControlFrameCodec;
+import com.example.mathsya_v_01.ControlState;
+import com.example.mathsya_v_01.FrameReader;
+import com.example.mathsya_v_01.OutboundFrameRing;
+import com.example.mathsya_v_01.TelemetryDecoder;
+import com.example.mathsya_v_01.TelemetrySnapshot;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TcpClient's send and receive framing without the socket: frames go through
+ * the outbound ring as the writer thread would take them, and inbound bytes are
+ * split by FrameReader from an in-memory channel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TcpFramingBenchmark {
+
+    static final String TELEMETRY = "{\"battery\":87,\"armed\":true,\"depth\":2.41,\"pH\":7.82,\"DO\":6.47,"
+            + "\"Temp\":27.31,\"Turbidity\":3.12,\"Ammonia\":0.021}";
+    static final String CONTROL_JSON =
+            "{\"x\":0.12,\"y\":-0.5,\"throttle\":40,\"armed\":true,\"ts\":1700000000000,\"seq\":1}";
+    /** Telemetry frames per simulated read() */
+    static final int FRAMES_PER_READ = 16;
+
+    @Param({"LINES", "FRAMED"})
+    public FrameReader.Mode mode;
+
+    private OutboundFrameRing ring;
+    private ByteBuffer binaryControl;
+    private FrameReader reader;
+    private RepeatingChannel channel;
+    private final TelemetryDecoder decoder = new TelemetryDecoder();
+    private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+    private ByteBuffer telemetryBytes;
+
+    // Built once so the lambdas' captures don't show up as per-read allocation
+    private FrameReader.Listener split;
+    private FrameReader.Listener decode;
+    private FrameReader.Listener legacyJson;
+
+    @Setup
+    public void setUp(Blackhole bh) {
+        split = (type, payload) -> bh.consume(payload.remaining());
+        decode = (type, payload) -> bh.consume(decoder.decode(payload, snapshot));
+        legacyJson = (type, payload) ->
+                bh.consume(new JSONObject(FrameReader.decodeText(payload)).optDouble("pH"));
+
+        ring = new OutboundFrameRing(64, 512);
+        ring.setFramed(mode == FrameReader.Mode.FRAMED);
+        ControlState state = new ControlState();
+        state.setPosition(0.12, -0.5);
+        binaryControl = new ControlFrameCodec().encode(state, 1_700_000_000_000L);
+
+        ByteBuffer wire = ByteBuffer.allocate(FRAMES_PER_READ * 256);
+        byte[] line = TELEMETRY.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < FRAMES_PER_READ; i++) {
+            if (mode == FrameReader.Mode.FRAMED) {
+                FrameReader.putVarint(wire, line.length + 1);
+                wire.put((byte) FrameReader.TYPE_TEXT);
+                wire.put(line);
+            } else {
+                wire.put(line).put((byte) '\n');
+            }
+        }
+        wire.flip();
+        channel = new RepeatingChannel(wire);
+        reader = new FrameReader(mode, ByteBuffer.allocateDirect(64 * 1024));
+        telemetryBytes = ByteBuffer.wrap(line).asReadOnlyBuffer();
+    }
+
+    // ---------------------------------------------------------
+    // SEND: producer offer + writer batch/release
+    // ---------------------------------------------------------
+    @Benchmark
+    public long sendText() throws InterruptedException {
+        ring.offerText(CONTROL_JSON);
+        return drainRing();
+    }
+
+    @Benchmark
+    public long sendBinary() throws InterruptedException {
+        binaryControl.rewind();
+        ring.offer(FrameReader.TYPE_CONTROL, binaryControl);
+        return drainRing();
+    }
+
+    private long drainRing() throws InterruptedException {
+        int n = ring.awaitBatch();
+        ByteBuffer[] batch = ring.batch();
+        long bytes = 0;
+        for (int i = 0; i < n; i++) {
+            bytes += batch[i].remaining();
+            batch[i].position(batch[i].limit());  // as if written
+        }
+        ring.release(n, bytes);
+        return bytes;
+    }
+
+    // ---------------------------------------------------------
+    // RECEIVE: one read() of FRAMES_PER_READ telemetry frames
+    // ---------------------------------------------------------
+    @Benchmark
+    public int receiveSplit() throws IOException {
+        return reader.read(channel, split);
+    }
+
+    @Benchmark
+    public int receiveDecode() throws IOException {
+        return reader.read(channel, decode);
+    }
+
+    /** What the reader thread used to do per line: build a String, parse it with org.json. */
+    @Benchmark
+    public int receiveLegacyJson() throws IOException {
+        return reader.read(channel, legacyJson);
+    }
+
+    @Benchmark
+    public boolean decodeTelemetry() {
+        telemetryBytes.rewind();
+        return decoder.decode(telemetryBytes, snapshot);
+    }
+
+    /** Endless channel that returns the same chunk of wire bytes on every read. */
+    static final class RepeatingChannel implements ReadableByteChannel {
+        private final ByteBuffer chunk;
+        private final int length;
+
+        RepeatingChannel(ByteBuffer chunk) {
+            this.chunk = chunk;
+            this.length = chunk.remaining();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            int n = Math.min(dst.remaining(), length);
+            chunk.limit(n).position(0);
+            dst.put(chunk);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.mathsya_v_01.bench;
+
+import com.example.mathsya_v_01.TelemetryDecoder;
+import com.example.mathsya_v_01.TelemetryDeltaCodec;
+import com.example.mathsya_v_01.TelemetrySnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the readings of TcpFramingBenchmark.decodeTelemetry when they
+ * arrive as tlm1 frames: one keyframe cycle, replayed in order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TelemetryDeltaBenchmark {
+
+    /** tlm1 frames from one keyframe to the next */
+    static final int KEYFRAME_INTERVAL = 20;
+
+    private final TelemetrySnapshot snapshot = new TelemetrySnapshot();
+    private final TelemetryDeltaCodec.Decoder decoder = new TelemetryDeltaCodec.Decoder();
+    private final ByteBuffer[] frames = new ByteBuffer[KEYFRAME_INTERVAL];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // A slowly drifting reading: depth and temperature change
+        TelemetrySnapshot s = new TelemetrySnapshot();
+        new TelemetryDecoder().decode(ByteBuffer.wrap(
+                TcpFramingBenchmark.TELEMETRY.getBytes(StandardCharsets.UTF_8)), s);
+        TelemetryDeltaCodec.Encoder encoder = new TelemetryDeltaCodec.Encoder(KEYFRAME_INTERVAL);
+        for (int i = 0; i < KEYFRAME_INTERVAL; i++) {
+            s.depth += 0.01 * (i % 3 - 1);
+            s.temperature += 0.01;
+            ByteBuffer frame = ByteBuffer.allocate(TelemetryDeltaCodec.MAX_FRAME_BYTES);
+            encoder.encode(s, frame);
+            frame.flip();
+            frames[i] = frame.asReadOnlyBuffer();
+        }
+    }
+
+    /** All but one frame in KEYFRAME_INTERVAL are deltas against the previous one. */
+    @Benchmark
+    public boolean decodeTelemetryDelta() {
+        ByteBuffer frame = frames[next];
+        next = (next + 1) % KEYFRAME_INTERVAL;
+        return decoder.decode(frame, snapshot);
+    }
+}
@@ -0,0 +1,20 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+application {
+    mainClass.set("com.example.mathsya_v_01.proxy.ImpairmentProxy")
+}
+
+// Run the stand-in vehicle with: ./gradlew :impairment-proxy:runStandIn --args="--port 5001"
+tasks.register<JavaExec>("runStandIn") {
+    group = "application"
+    description = "Runs a local stand-in for the vehicle's TCP control server."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.mathsya_v_01.proxy.StandInVehicle")
+}
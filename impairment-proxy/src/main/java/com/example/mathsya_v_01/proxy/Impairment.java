@@ -0,0 +1,64 @@
+package com.example.mathsya_v_01.proxy;
+
+import java.util.Locale;
+
+/**
+ * One set of link conditions. Immutable; scenarios swap in a new instance.
+ *
+ * TCP cannot lose bytes without breaking the stream, so on TCP a "lost"
+ * segment is modelled the way the app experiences it: that segment and
+ * everything behind it is held back by a retransmission penalty.
+ */
+public final class Impairment {
+
+    public static final Impairment NONE = new Impairment(0, 0, 0, 0, 200, false);
+
+    public final long latencyMs;
+    public final long jitterMs;
+    public final double loss;              // 0..1, per segment
+    public final long bandwidthBytesPerSec; // 0 = unlimited
+    public final long lossPenaltyMs;       // retransmission delay for a lost TCP segment
+    public final boolean blackout;         // stop forwarding entirely
+
+    public Impairment(long latencyMs, long jitterMs, double loss,
+                      long bandwidthBytesPerSec, long lossPenaltyMs, boolean blackout) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.loss = loss;
+        this.bandwidthBytesPerSec = bandwidthBytesPerSec;
+        this.lossPenaltyMs = lossPenaltyMs;
+        this.blackout = blackout;
+    }
+
+    /**
+     * Copy with one setting changed. Keys: latency, jitter, loss, bandwidth,
+     * penalty, blackout.
+     */
+    public Impairment with(String key, String value) {
+        switch (key) {
+            case "latency":
+                return new Impairment(Long.parseLong(value), jitterMs, loss, bandwidthBytesPerSec, lossPenaltyMs, blackout);
+            case "jitter":
+                return new Impairment(latencyMs, Long.parseLong(value), loss, bandwidthBytesPerSec, lossPenaltyMs, blackout);
+            case "loss":
+                return new Impairment(latencyMs, jitterMs, Double.parseDouble(value), bandwidthBytesPerSec, lossPenaltyMs, blackout);
+            case "bandwidth":
+                return new Impairment(latencyMs, jitterMs, loss, Long.parseLong(value), lossPenaltyMs, blackout);
+            case "penalty":
+                return new Impairment(latencyMs, jitterMs, loss, bandwidthBytesPerSec, Long.parseLong(value), blackout);
+            case "blackout":
+                return new Impairment(latencyMs, jitterMs, loss, bandwidthBytesPerSec, lossPenaltyMs, Boolean.parseBoolean(value));
+            default:
+                throw new IllegalArgumentException("Unknown impairment setting: " + key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "latency=%dms jitter=%dms loss=%.3f bandwidth=%s penalty=%dms%s",
+                latencyMs, jitterMs, loss,
+                bandwidthBytesPerSec == 0 ? "unlimited" : bandwidthBytesPerSec + "B/s",
+                lossPenaltyMs, blackout ? " BLACKOUT" : "");
+    }
+}
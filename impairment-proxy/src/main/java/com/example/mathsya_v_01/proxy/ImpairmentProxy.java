@@ -0,0 +1,329 @@
+package com.example.mathsya_v_01.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loopback TCP proxy that reproduces a lossy Wi-Fi link between the app and a
+ * vehicle (or {@link StandInVehicle}) on a plain Linux box.
+ *
+ * Each direction of each connection is forwarded in MSS-sized segments. Every
+ * segment is held back by latency plus jitter, serialised through an optional
+ * bandwidth cap, and with probability {@code loss} delayed by a retransmission
+ * penalty. Segments never overtake each other, as on a real TCP stream.
+ *
+ * <pre>
+ *   java ImpairmentProxy --listen 5000 --target 127.0.0.1:5001 \
+ *        [--latency 40] [--jitter 15] [--loss 0.02] [--bandwidth 32000] \
+ *        [--scenario wifi.txt [--loop]] \
+ *        [--udp-listen 5002 --udp-target 127.0.0.1:5003]
+ * </pre>
+ * Point the app (or an emulator via adb reverse) at the listen port. With
+ * --udp-listen the control datagram channel is relayed too (see {@link UdpRelay}).
+ */
+public final class ImpairmentProxy {
+
+    private static final int SEGMENT_BYTES = 1460;
+    private static final long STATS_INTERVAL_MS = 5000;
+
+    private final int listenPort;
+    private final InetSocketAddress target;
+    private final AtomicReference<Impairment> impairment;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private final AtomicLong resets = new AtomicLong();
+    private volatile UdpRelay udpRelay;
+
+    public ImpairmentProxy(int listenPort, InetSocketAddress target, Impairment initial) {
+        this.listenPort = listenPort;
+        this.target = target;
+        this.impairment = new AtomicReference<>(initial);
+    }
+
+    public Impairment impairment() {
+        return impairment.get();
+    }
+
+    public void setImpairment(Impairment next) {
+        Impairment prev = impairment.getAndSet(next);
+        if (!next.toString().equals(prev.toString())) log("link: " + next);
+    }
+
+    /** Abort every open connection with a TCP RST. */
+    public void resetAll() {
+        log("reset: " + sessions.size() + " connection(s)");
+        for (Session s : sessions) s.reset();
+        resets.incrementAndGet();
+    }
+
+    /** Also relay datagrams from listenPort to target under the same impairment. */
+    public void relayUdp(int listenPort, InetSocketAddress target) throws IOException {
+        UdpRelay relay = new UdpRelay(this, listenPort, target);
+        relay.start();
+        udpRelay = relay;
+    }
+
+    public void run() throws IOException {
+        Thread stats = new Thread(this::statsLoop, "stats");
+        stats.setDaemon(true);
+        stats.start();
+
+        try (ServerSocket server = new ServerSocket(listenPort)) {
+            log("listening on :" + listenPort + " -> " + target + " (" + impairment.get() + ")");
+            while (true) {
+                Socket client = server.accept();
+                client.setTcpNoDelay(true);
+                try {
+                    Socket upstream = new Socket();
+                    upstream.connect(target, 3000);
+                    upstream.setTcpNoDelay(true);
+                    Session s = new Session(sessionIds.incrementAndGet(), client, upstream);
+                    sessions.add(s);
+                    s.start();
+                } catch (IOException e) {
+                    log("upstream connect failed: " + e.getMessage());
+                    client.close();
+                }
+            }
+        }
+    }
+
+    private void statsLoop() {
+        while (true) {
+            try {
+                Thread.sleep(STATS_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (Session s : sessions) log(s.stats());
+            UdpRelay relay = udpRelay;
+            if (relay != null) log(relay.stats());
+        }
+    }
+
+    static void log(String msg) {
+        System.out.printf("%tT.%<tL  %s%n", System.currentTimeMillis(), msg);
+    }
+
+    // ---------------------------------------------------------
+    // SESSION: one proxied connection, two directions
+    // ---------------------------------------------------------
+    private final class Session {
+        final int id;
+        final Socket client;
+        final Socket upstream;
+        final Pipe up;
+        final Pipe down;
+        final long openedAt = System.currentTimeMillis();
+
+        Session(int id, Socket client, Socket upstream) throws IOException {
+            this.id = id;
+            this.client = client;
+            this.upstream = upstream;
+            this.up = new Pipe("#" + id + " app->vehicle", client.getInputStream(), upstream.getOutputStream());
+            this.down = new Pipe("#" + id + " vehicle->app", upstream.getInputStream(), client.getOutputStream());
+        }
+
+        void start() {
+            log("#" + id + " open from " + client.getRemoteSocketAddress());
+            up.start();
+            down.start();
+        }
+
+        void reset() {
+            abort(client);
+            abort(upstream);
+        }
+
+        void closed() {
+            if (!sessions.remove(this)) return;
+            try {
+                client.close();
+                upstream.close();
+            } catch (IOException ignored) {}
+            log("#" + id + " closed after " + (System.currentTimeMillis() - openedAt) + "ms; " + stats());
+        }
+
+        String stats() {
+            return up.stats() + " | " + down.stats();
+        }
+
+        // SO_LINGER 0 makes close() send RST instead of FIN
+        private void abort(Socket s) {
+            try {
+                s.setSoLinger(true, 0);
+                s.close();
+            } catch (IOException ignored) {}
+        }
+
+        // ---------------------------------------------------------
+        // PIPE: reader stamps each segment with its release time,
+        // writer sleeps until then and forwards it
+        // ---------------------------------------------------------
+        private final class Pipe {
+            final String name;
+            final InputStream in;
+            final OutputStream out;
+            final LinkedBlockingQueue<Segment> queue = new LinkedBlockingQueue<>();
+
+            long linkFreeAtNanos = 0;
+            long lastReleaseNanos = 0;
+            final AtomicLong bytes = new AtomicLong();
+            final AtomicLong segments = new AtomicLong();
+            final AtomicLong lost = new AtomicLong();
+            volatile long maxQueuedBytes = 0;
+            final AtomicLong queuedBytes = new AtomicLong();
+
+            Pipe(String name, InputStream in, OutputStream out) {
+                this.name = name;
+                this.in = in;
+                this.out = out;
+            }
+
+            void start() {
+                new Thread(this::readLoop, name + " reader").start();
+                new Thread(this::writeLoop, name + " writer").start();
+            }
+
+            void readLoop() {
+                byte[] buf = new byte[SEGMENT_BYTES];
+                try {
+                    int n;
+                    while ((n = in.read(buf)) > 0) {
+                        while (impairment.get().blackout) Thread.sleep(10);
+                        byte[] data = new byte[n];
+                        System.arraycopy(buf, 0, data, 0, n);
+                        queue.put(new Segment(data, releaseTime(n)));
+                        long q = queuedBytes.addAndGet(n);
+                        if (q > maxQueuedBytes) maxQueuedBytes = q;
+                    }
+                } catch (IOException | InterruptedException ignored) {
+                } finally {
+                    queue.offer(Segment.EOF);
+                }
+            }
+
+            long releaseTime(int len) {
+                Impairment imp = impairment.get();
+                long now = System.nanoTime();
+                long delayMs = imp.latencyMs;
+                if (imp.jitterMs > 0) {
+                    delayMs += ThreadLocalRandom.current().nextLong(-imp.jitterMs, imp.jitterMs + 1);
+                }
+                if (imp.loss > 0 && ThreadLocalRandom.current().nextDouble() < imp.loss) {
+                    delayMs += imp.lossPenaltyMs;
+                    lost.incrementAndGet();
+                }
+                long base = now;
+                if (imp.bandwidthBytesPerSec > 0) {
+                    linkFreeAtNanos = Math.max(linkFreeAtNanos, now)
+                            + len * 1_000_000_000L / imp.bandwidthBytesPerSec;
+                    base = linkFreeAtNanos;
+                }
+                long release = Math.max(base + Math.max(0, delayMs) * 1_000_000L, lastReleaseNanos);
+                lastReleaseNanos = release;
+                return release;
+            }
+
+            void writeLoop() {
+                try {
+                    while (true) {
+                        Segment s = queue.take();
+                        if (s == Segment.EOF) break;
+                        long wait = s.releaseAtNanos - System.nanoTime();
+                        if (wait > 0) Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                        out.write(s.data);
+                        out.flush();
+                        queuedBytes.addAndGet(-s.data.length);
+                        bytes.addAndGet(s.data.length);
+                        segments.incrementAndGet();
+                    }
+                } catch (IOException | InterruptedException ignored) {
+                } finally {
+                    closed();
+                }
+            }
+
+            String stats() {
+                return String.format("%s: %d B in %d seg, %d lost, queue %d B (max %d B)",
+                        name, bytes.get(), segments.get(), lost.get(), queuedBytes.get(), maxQueuedBytes);
+            }
+        }
+    }
+
+    private static final class Segment {
+        static final Segment EOF = new Segment(new byte[0], 0);
+
+        final byte[] data;
+        final long releaseAtNanos;
+
+        Segment(byte[] data, long releaseAtNanos) {
+            this.data = data;
+            this.releaseAtNanos = releaseAtNanos;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // MAIN
+    // ---------------------------------------------------------
+    public static void main(String[] args) throws Exception {
+        int listen = 5000;
+        String target = "127.0.0.1:5001";
+        String scenarioFile = null;
+        boolean loop = false;
+        int udpListen = 0;
+        String udpTarget = null;
+        Impairment imp = Impairment.NONE;
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--listen": listen = Integer.parseInt(args[++i]); break;
+                case "--target": target = args[++i]; break;
+                case "--scenario": scenarioFile = args[++i]; break;
+                case "--loop": loop = true; break;
+                case "--udp-listen": udpListen = Integer.parseInt(args[++i]); break;
+                case "--udp-target": udpTarget = args[++i]; break;
+                case "--latency":
+                case "--jitter":
+                case "--loss":
+                case "--bandwidth":
+                case "--penalty":
+                    imp = imp.with(a.substring(2), args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + a);
+                    System.exit(2);
+            }
+        }
+
+        ImpairmentProxy proxy = new ImpairmentProxy(listen, parseAddress(target), imp);
+        if (udpListen > 0) {
+            if (udpTarget == null) {
+                System.err.println("--udp-listen needs --udp-target");
+                System.exit(2);
+            }
+            proxy.relayUdp(udpListen, parseAddress(udpTarget));
+        }
+        if (scenarioFile != null) Scenario.load(Paths.get(scenarioFile), loop).runAsync(proxy);
+        proxy.run();
+    }
+
+    private static InetSocketAddress parseAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        return new InetSocketAddress(
+                hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+}
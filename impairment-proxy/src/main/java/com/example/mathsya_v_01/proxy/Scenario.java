@@ -0,0 +1,94 @@
+package com.example.mathsya_v_01.proxy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timed script of link conditions, one step per line:
+ * <pre>
+ *   # seconds  settings...
+ *   0    latency=20 jitter=5
+ *   30   latency=250 jitter=80 loss=0.05 bandwidth=16000
+ *   45   reset
+ *   60   blackout=true
+ *   63   blackout=false latency=20 jitter=5 loss=0
+ * </pre>
+ * Settings carry over from the previous step. "reset" kills every open
+ * connection with a TCP RST.
+ */
+public final class Scenario {
+
+    static final class Step {
+        final long atMs;
+        final List<String[]> settings = new ArrayList<>();
+        boolean reset;
+
+        Step(long atMs) {
+            this.atMs = atMs;
+        }
+    }
+
+    private final List<Step> steps;
+    private final boolean loop;
+
+    private Scenario(List<Step> steps, boolean loop) {
+        this.steps = steps;
+        this.loop = loop;
+    }
+
+    public static Scenario load(Path file, boolean loop) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        int lineNo = 0;
+        for (String raw : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNo++;
+            String line = raw.replaceAll("#.*", "").trim();
+            if (line.isEmpty()) continue;
+
+            String[] parts = line.split("\\s+");
+            Step step = new Step((long) (Double.parseDouble(parts[0]) * 1000));
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].equals("reset")) {
+                    step.reset = true;
+                    continue;
+                }
+                String[] kv = parts[i].split("=", 2);
+                if (kv.length != 2) throw new IOException("Line " + lineNo + ": expected key=value, got " + parts[i]);
+                Impairment.NONE.with(kv[0], kv[1]); // validate now rather than mid-run
+                step.settings.add(kv);
+            }
+            steps.add(step);
+        }
+        return new Scenario(steps, loop);
+    }
+
+    /** Play the script against the proxy on a daemon thread. */
+    public void runAsync(ImpairmentProxy proxy) {
+        Thread t = new Thread(() -> {
+            try {
+                do {
+                    play(proxy);
+                } while (loop);
+            } catch (InterruptedException ignored) {
+            }
+        }, "scenario");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void play(ImpairmentProxy proxy) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        for (Step step : steps) {
+            long wait = start + step.atMs - System.currentTimeMillis();
+            if (wait > 0) Thread.sleep(wait);
+
+            Impairment next = proxy.impairment();
+            for (String[] kv : step.settings) next = next.with(kv[0], kv[1]);
+            proxy.setImpairment(next);
+            if (step.reset) proxy.resetAll();
+        }
+    }
+}
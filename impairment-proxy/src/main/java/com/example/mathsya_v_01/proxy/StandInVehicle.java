@@ -0,0 +1,196 @@
+package com.example.mathsya_v_01.proxy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal stand-in for the vehicle's TCP control server (newline-delimited
+ * JSON), for use behind {@link ImpairmentProxy}.
+ *
+ * It answers the codec hello with JSON, counts control frames and streams
+ * telemetry lines at a fixed rate. Every control frame carrying a sequence is
+ * acknowledged with {"ack":seq} so the app can measure round trips, and
+ * heartbeat {"ping":n} lines are answered with {"pong":n}; the hello reply
+ * advertises this with {"heartbeat":1} when the hello offers it.
+ * With --udp-port it also accepts control datagrams and applies only those
+ * newer than the last applied sequence, like the vehicle does; applied
+ * binary frames are echoed back as is, JSON ones with an ack. --advertise-udp sets the port named in the hello reply,
+ * e.g. the proxy's --udp-listen port.
+ *
+ * <pre>
+ *   java StandInVehicle [--port 5001] [--telemetry-hz 10]
+ *        [--udp-port 5003 [--advertise-udp 5002]]
+ * </pre>
+ */
+public final class StandInVehicle {
+
+    private static final byte CONTROL_MAGIC = (byte) 0xA5;
+    private static final Pattern JSON_SEQ = Pattern.compile("\"seq\"\\s*:\\s*(-?\\d+)");
+
+    private static int advertisedUdpPort = 0;
+
+    public static void main(String[] args) throws IOException {
+        int port = 5001;
+        int telemetryHz = 10;
+        int udpPort = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port")) port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--telemetry-hz")) telemetryHz = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--udp-port")) udpPort = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--advertise-udp")) advertisedUdpPort = Integer.parseInt(args[++i]);
+        }
+
+        if (udpPort > 0) {
+            if (advertisedUdpPort == 0) advertisedUdpPort = udpPort;
+            DatagramSocket udp = new DatagramSocket(udpPort);
+            Thread t = new Thread(() -> receiveControl(udp), "vehicle udp");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        try (ServerSocket server = new ServerSocket(port)) {
+            ImpairmentProxy.log("stand-in vehicle on :" + port
+                    + (udpPort > 0 ? ", udp control on :" + udpPort : ""));
+            while (true) {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                int hz = telemetryHz;
+                new Thread(() -> serve(s, hz), "vehicle " + s.getRemoteSocketAddress()).start();
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // UDP CONTROL: newest sequence wins, older datagrams are dropped
+    // ---------------------------------------------------------
+    private static void receiveControl(DatagramSocket udp) {
+        byte[] buf = new byte[2048];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        boolean haveLast = false;
+        int lastApplied = 0;
+        long applied = 0;
+        long stale = 0;
+        long unreadable = 0;
+        long nextReport = System.currentTimeMillis() + 5000;
+        try {
+            while (true) {
+                packet.setLength(buf.length);
+                udp.receive(packet);
+                Integer seq = sequenceOf(buf, packet.getLength());
+                if (seq == null) {
+                    unreadable++;
+                } else if (!haveLast || seq - lastApplied > 0) {  // ControlFrameCodec.isNewer
+                    lastApplied = seq;
+                    haveLast = true;
+                    applied++;
+                    if (buf[0] != CONTROL_MAGIC) {
+                        byte[] ack = ackFor(seq).getBytes(StandardCharsets.UTF_8);
+                        udp.send(new DatagramPacket(ack, ack.length, packet.getSocketAddress()));
+                    } else {
+                        udp.send(new DatagramPacket(buf, packet.getLength(), packet.getSocketAddress()));
+                    }
+                } else {
+                    stale++;
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextReport) {
+                    ImpairmentProxy.log(String.format("udp control: %d applied, %d stale, %d unreadable, last #%d",
+                            applied, stale, unreadable, lastApplied));
+                    nextReport = now + 5000;
+                }
+            }
+        } catch (IOException e) {
+            ImpairmentProxy.log("udp control stopped: " + e.getMessage());
+        }
+    }
+
+    // Binary frame (ControlFrameCodec layout) or a JSON object with "seq"
+    private static Integer sequenceOf(byte[] buf, int len) {
+        if (len >= 8 && buf[0] == CONTROL_MAGIC) return ByteBuffer.wrap(buf, 4, 4).getInt();
+        Matcher m = JSON_SEQ.matcher(new String(buf, 0, len, StandardCharsets.UTF_8));
+        return m.find() ? Integer.valueOf(m.group(1)) : null;
+    }
+
+    private static String ackFor(int seq) {
+        return "{\"ack\":" + seq + "}";
+    }
+
+    private static void serve(Socket s, int telemetryHz) {
+        ImpairmentProxy.log("app connected from " + s.getRemoteSocketAddress());
+        AtomicLong frames = new AtomicLong();
+        try {
+            OutputStream out = s.getOutputStream();
+            Thread telemetry = new Thread(() -> streamTelemetry(out, telemetryHz), "telemetry");
+            telemetry.setDaemon(true);
+            telemetry.start();
+
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("{\"ping\"")) {
+                    // heartbeat: answer with the same number
+                    write(out, "{\"pong\"" + line.substring(7));
+                } else if (line.contains("\"hello\"")) {
+                    StringBuilder reply = new StringBuilder("{\"codec\":\"json\"");
+                    if (advertisedUdpPort > 0 && line.contains("\"udp\"")) {
+                        reply.append(",\"udp\":").append(advertisedUdpPort);
+                    }
+                    if (line.contains("\"heartbeat\"")) reply.append(",\"heartbeat\":1");
+                    write(out, reply.append('}').toString());
+                } else {
+                    frames.incrementAndGet();
+                    Matcher m = JSON_SEQ.matcher(line);
+                    if (m.find()) write(out, ackFor(Integer.parseInt(m.group(1))));
+                }
+            }
+        } catch (IOException e) {
+            ImpairmentProxy.log("app link error: " + e.getMessage());
+        } finally {
+            ImpairmentProxy.log("app disconnected after " + frames.get() + " control frames");
+            try {
+                s.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private static void streamTelemetry(OutputStream out, int hz) {
+        long period = 1000L / Math.max(1, hz);
+        double t = 0;
+        try {
+            while (true) {
+                t += period / 1000.0;
+                write(out, String.format(Locale.US,
+                        "{\"battery\":%d,\"armed\":false,\"depth\":%.2f,\"pH\":%.2f,\"DO\":%.2f,"
+                                + "\"Temp\":%.2f,\"Turbidity\":%.2f,\"Ammonia\":%.3f,"
+                                + "\"lat\":%.7f,\"lon\":%.7f}",
+                        100 - (int) (t / 60) % 100, 2 + Math.sin(t / 5), 7.8 + 0.1 * Math.sin(t / 7),
+                        6.5 + 0.3 * Math.cos(t / 11), 27 + Math.sin(t / 13), 3 + Math.cos(t / 3),
+                        0.02 + 0.01 * Math.sin(t / 17),
+                        // a slow 50 m circle, for the dashboard's track
+                        12.9602 + 0.00045 * Math.sin(t / 60), 80.0574 + 0.00046 * Math.cos(t / 60)));
+                Thread.sleep(period);
+            }
+        } catch (IOException | InterruptedException ignored) {
+        }
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        synchronized (out) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.mathsya_v_01.proxy;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UDP side of {@link ImpairmentProxy}, for the control datagram channel.
+ *
+ * Unlike the TCP pipes, loss here really drops the datagram, and each one is
+ * delayed independently, so jitter larger than the send interval reorders
+ * them. That is what the vehicle's stale-sequence filter has to cope with.
+ *
+ * The app sends to the listen port; replies from the target go back to
+ * whichever app address sent last.
+ */
+final class UdpRelay {
+
+    private static final int MAX_DATAGRAM = 2048;
+
+    private final ImpairmentProxy proxy;
+    private final InetSocketAddress target;
+    private final DatagramSocket appSide;
+    private final DatagramSocket vehicleSide;
+    private volatile SocketAddress appAddress;
+
+    private final Direction up = new Direction("udp app->vehicle");
+    private final Direction down = new Direction("udp vehicle->app");
+
+    UdpRelay(ImpairmentProxy proxy, int listenPort, InetSocketAddress target) throws IOException {
+        this.proxy = proxy;
+        this.target = target;
+        this.appSide = new DatagramSocket(listenPort);
+        this.vehicleSide = new DatagramSocket();
+    }
+
+    void start() {
+        ImpairmentProxy.log("udp :" + appSide.getLocalPort() + " -> " + target);
+        thread(() -> receiveLoop(appSide, up), "udp app reader");
+        thread(() -> receiveLoop(vehicleSide, down), "udp vehicle reader");
+        thread(() -> sendLoop(up, vehicleSide), "udp app->vehicle writer");
+        thread(() -> sendLoop(down, appSide), "udp vehicle->app writer");
+    }
+
+    String stats() {
+        return up.stats() + " | " + down.stats();
+    }
+
+    private void receiveLoop(DatagramSocket socket, Direction dir) {
+        byte[] buf = new byte[MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        try {
+            while (true) {
+                packet.setLength(buf.length);
+                socket.receive(packet);
+                if (dir == up) appAddress = packet.getSocketAddress();
+                dir.received.incrementAndGet();
+
+                Impairment imp = proxy.impairment();
+                if (imp.blackout || (imp.loss > 0 && ThreadLocalRandom.current().nextDouble() < imp.loss)) {
+                    dir.dropped.incrementAndGet();
+                    continue;
+                }
+                byte[] data = Arrays.copyOf(buf, packet.getLength());
+                dir.queue.put(new Datagram(data, dir.releaseTime(imp, data.length)));
+            }
+        } catch (IOException e) {
+            ImpairmentProxy.log(dir.name + " stopped: " + e.getMessage());
+        }
+    }
+
+    private void sendLoop(Direction dir, DatagramSocket out) {
+        try {
+            while (true) {
+                Datagram d = dir.queue.take();
+                SocketAddress to = dir == up ? target : appAddress;
+                if (to == null) continue;
+                out.send(new DatagramPacket(d.data, d.data.length, to));
+                dir.forwarded.incrementAndGet();
+            }
+        } catch (IOException | InterruptedException e) {
+            ImpairmentProxy.log(dir.name + " writer stopped: " + e.getMessage());
+        }
+    }
+
+    private static void thread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // ---------------------------------------------------------
+    // ONE DIRECTION: datagrams wait in a delay queue, no ordering kept
+    // ---------------------------------------------------------
+    private static final class Direction {
+        final String name;
+        final DelayQueue<Datagram> queue = new DelayQueue<>();
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong forwarded = new AtomicLong();
+        long linkFreeAtNanos = 0;  // reader-owned
+
+        Direction(String name) {
+            this.name = name;
+        }
+
+        long releaseTime(Impairment imp, int len) {
+            long now = System.nanoTime();
+            long delayMs = imp.latencyMs;
+            if (imp.jitterMs > 0) {
+                delayMs += ThreadLocalRandom.current().nextLong(-imp.jitterMs, imp.jitterMs + 1);
+            }
+            long base = now;
+            if (imp.bandwidthBytesPerSec > 0) {
+                linkFreeAtNanos = Math.max(linkFreeAtNanos, now)
+                        + len * 1_000_000_000L / imp.bandwidthBytesPerSec;
+                base = linkFreeAtNanos;
+            }
+            return base + Math.max(0, delayMs) * 1_000_000L;
+        }
+
+        String stats() {
+            return String.format("%s: %d in, %d dropped, %d out",
+                    name, received.get(), dropped.get(), forwarded.get());
+        }
+    }
+
+    private static final class Datagram implements Delayed {
+        final byte[] data;
+        final long releaseAtNanos;
+
+        Datagram(byte[] data, long releaseAtNanos) {
+            this.data = data;
+            this.releaseAtNanos = releaseAtNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(releaseAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(releaseAtNanos, ((Datagram) o).releaseAtNanos);
+        }
+    }
+}
@@ -26,4 +26,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Mathsya_V_01"
 include(":app")
+include(":impairment-proxy")
+include(":benchmarks")
  
\ No newline at end of file